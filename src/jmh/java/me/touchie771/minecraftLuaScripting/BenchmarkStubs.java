@@ -0,0 +1,249 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandMap;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Lightweight proxy-based stand-ins for the Bukkit server, so the scripting hot paths can be benchmarked
+ * without a running server. Registrations made through the stubs are captured for the benchmarks to drive.
+ */
+final class BenchmarkStubs {
+
+    static final List<Registration> EVENT_REGISTRATIONS = new ArrayList<>();
+    static final List<Command> COMMANDS = new ArrayList<>();
+    static final List<Runnable> SYNC_TASKS = new ArrayList<>();
+
+    private static final Logger LOGGER = Logger.getLogger("BenchmarkServer");
+    private static final AtomicInteger TASK_IDS = new AtomicInteger();
+    private static Server server;
+    private static World world;
+
+    static {
+        LOGGER.setLevel(Level.WARNING);
+    }
+
+    private BenchmarkStubs() {
+    }
+
+    record Registration(Class<? extends Event> eventClass, Listener listener, EventPriority priority, EventExecutor executor) {
+    }
+
+    /**
+     * Installs the stub server as the Bukkit server on first use.
+     */
+    static synchronized Server server() {
+        if (server != null) {
+            return server;
+        }
+
+        PluginManager pluginManager = proxy(PluginManager.class, (method, args) -> {
+            if (method.getName().equals("registerEvent")) {
+                @SuppressWarnings("unchecked")
+                Class<? extends Event> eventClass = (Class<? extends Event>) args[0];
+                EVENT_REGISTRATIONS.add(new Registration(eventClass, (Listener) args[1], (EventPriority) args[2], (EventExecutor) args[3]));
+                return null;
+            }
+            if (method.getName().equals("getPlugins")) {
+                return new Plugin[0];
+            }
+            return defaultValue(method);
+        });
+
+        BukkitScheduler scheduler = proxy(BukkitScheduler.class, (method, args) -> {
+            String name = method.getName();
+            if ((name.equals("runTaskLater") || name.equals("runTaskTimer") || name.equals("runTask"))
+                    && args.length > 1 && args[1] instanceof Runnable runnable) {
+                SYNC_TASKS.add(runnable);
+                return task(TASK_IDS.incrementAndGet());
+            }
+            if (name.startsWith("runTask") && args.length > 1 && args[1] instanceof Runnable) {
+                return task(TASK_IDS.incrementAndGet());
+            }
+            return defaultValue(method);
+        });
+
+        CommandMap commandMap = proxy(CommandMap.class, (method, args) -> {
+            if (method.getName().equals("register") && args.length == 2 && args[1] instanceof Command command) {
+                COMMANDS.add(command);
+                return true;
+            }
+            return defaultValue(method);
+        });
+
+        server = proxy(Server.class, (method, args) -> switch (method.getName()) {
+            case "getLogger" -> LOGGER;
+            case "getName" -> "BenchmarkServer";
+            case "getVersion" -> "benchmark";
+            case "getBukkitVersion" -> "1.18.2-R0.1-SNAPSHOT";
+            case "isPrimaryThread" -> true;
+            case "getPluginManager" -> pluginManager;
+            case "getScheduler" -> scheduler;
+            case "getCommandMap" -> commandMap;
+            case "getOnlinePlayers" -> List.of();
+            default -> defaultValue(method);
+        });
+        Bukkit.setServer(server);
+
+        world = proxy(World.class, (method, args) -> switch (method.getName()) {
+            case "getName" -> "world";
+            case "getUID" -> new UUID(0, 1);
+            default -> defaultValue(method);
+        });
+        return server;
+    }
+
+    static World world() {
+        server();
+        return world;
+    }
+
+    static Player player(String name) {
+        server();
+        UUID uuid = UUID.nameUUIDFromBytes(name.getBytes());
+        Location location = new Location(world, 0.5, 64, 0.5);
+        return proxy(Player.class, (method, args) -> switch (method.getName()) {
+            case "getName", "getDisplayName" -> name;
+            case "getUniqueId" -> uuid;
+            case "getLocation" -> location.clone();
+            case "getWorld" -> world;
+            case "hasPermission", "isOnline", "isValid" -> true;
+            case "getEntityId" -> 42;
+            default -> defaultValue(method);
+        });
+    }
+
+    /**
+     * Creates a plugin instance backed by the stub server, with its data folder in a temporary directory.
+     */
+    @SuppressWarnings("deprecation")
+    static MinecraftLuaScripting plugin(File dataFolder) {
+        Server stubServer = server();
+        PluginDescriptionFile description = new PluginDescriptionFile(
+                "MinecraftLuaScripting", "benchmark", MinecraftLuaScripting.class.getName());
+        return new MinecraftLuaScripting(new JavaPluginLoader(stubServer), description, dataFolder, new File(dataFolder, "plugin.jar"));
+    }
+
+    /**
+     * Runs the given scripts through {@link ScriptExecutor} exactly as the plugin does on enable.
+     *
+     * @param scripts Script file names mapped to their source
+     */
+    static void loadScripts(MinecraftLuaScripting plugin, File scriptsFolder, Map<String, String> scripts) throws IOException {
+        writeScripts(plugin, scriptsFolder, scripts);
+        ScriptExecutor.executeScripts(plugin);
+    }
+
+    /**
+     * Prepares the scripts folder without executing it.
+     */
+    static void writeScripts(MinecraftLuaScripting plugin, File scriptsFolder, Map<String, String> scripts) throws IOException {
+        ScriptExecutor.setScriptsFolder(scriptsFolder);
+        if (!ScriptExecutor.setup(plugin)) {
+            throw new IllegalStateException("ScriptExecutor setup failed");
+        }
+        // Only benchmark scripts should run.
+        Files.deleteIfExists(new File(scriptsFolder, "example.lua").toPath());
+        for (Map.Entry<String, String> script : scripts.entrySet()) {
+            Files.writeString(new File(scriptsFolder, script.getKey()).toPath(), script.getValue());
+        }
+    }
+
+    static void reset(MinecraftLuaScripting plugin) {
+        ScriptExecutor.cleanup(plugin);
+        EVENT_REGISTRATIONS.clear();
+        COMMANDS.clear();
+        SYNC_TASKS.clear();
+    }
+
+    static void deleteRecursively(File folder) throws IOException {
+        if (!folder.exists()) {
+            return;
+        }
+        try (Stream<java.nio.file.Path> paths = Files.walk(folder.toPath())) {
+            for (java.nio.file.Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static BukkitTask task(int id) {
+        return proxy(BukkitTask.class, (method, args) -> method.getName().equals("getTaskId") ? id : defaultValue(method));
+    }
+
+    @FunctionalInterface
+    private interface Answer {
+        Object answer(Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, Answer answer) {
+        Object instance = Proxy.newProxyInstance(BenchmarkStubs.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object[] arguments = args == null ? new Object[0] : args;
+            return switch (method.getName()) {
+                case "equals" -> arguments.length == 1 ? proxy == arguments[0] : answer.answer(method, arguments);
+                case "hashCode" -> arguments.length == 0 ? System.identityHashCode(proxy) : answer.answer(method, arguments);
+                case "toString" -> arguments.length == 0 ? "Stub" + type.getSimpleName() : answer.answer(method, arguments);
+                default -> answer.answer(method, arguments);
+            };
+        });
+        return type.cast(instance);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
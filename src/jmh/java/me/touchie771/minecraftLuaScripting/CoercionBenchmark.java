@@ -0,0 +1,76 @@
+package me.touchie771.minecraftLuaScripting;
+
+import me.touchie771.minecraftLuaScripting.bindings.LuaBindings;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.jse.CoerceJavaToLua;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares LuaJ's reflective coercion with the precomputed bindings, for wrapping an object and
+ * for wrapping it and calling one getter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CoercionBenchmark {
+
+    @Param({"Player", "Location", "PlayerMoveEvent"})
+    public String type;
+
+    private Object value;
+    private String getter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Player player = BenchmarkStubs.player("Bench");
+        Location location = new Location(BenchmarkStubs.world(), 1, 64, 1);
+        switch (type) {
+            case "Player" -> {
+                value = player;
+                getter = "getName";
+            }
+            case "Location" -> {
+                value = location;
+                getter = "getX";
+            }
+            case "PlayerMoveEvent" -> {
+                value = new PlayerMoveEvent(player, location, location.clone().add(0.5, 0, 0));
+                getter = "getPlayer";
+            }
+            default -> throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    @Benchmark
+    public LuaValue reflectiveCoerce() {
+        return CoerceJavaToLua.coerce(value);
+    }
+
+    @Benchmark
+    public LuaValue boundCoerce() {
+        return LuaBindings.coerce(value);
+    }
+
+    @Benchmark
+    public LuaValue reflectiveCall() {
+        return CoerceJavaToLua.coerce(value).method(getter);
+    }
+
+    @Benchmark
+    public LuaValue boundCall() {
+        return LuaBindings.coerce(value).method(getter);
+    }
+}
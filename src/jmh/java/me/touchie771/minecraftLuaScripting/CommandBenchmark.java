@@ -0,0 +1,75 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.bukkit.command.Command;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures executing a Lua command, including sender coercion and argument table construction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandBenchmark {
+
+    @Param({"0", "3", "10"})
+    public int arguments;
+
+    private File dataFolder;
+    private MinecraftLuaScripting plugin;
+    private Command command;
+    private Player sender;
+    private String[] args;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("luascripting-bench").toFile();
+        plugin = BenchmarkStubs.plugin(dataFolder);
+        BenchmarkStubs.loadScripts(plugin, new File(dataFolder, "LuaScripts"), Map.of("commands.lua", """
+                registerCommand("bench", nil, function(sender, args)
+                  local name = sender:getName()
+                  local count = 0
+                  for i = 1, #args do
+                    count = count + #args[i]
+                  end
+                  return true
+                end)
+                """));
+
+        command = BenchmarkStubs.COMMANDS.stream()
+                .filter(c -> c.getName().equals("bench"))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Lua command was not registered"));
+        sender = BenchmarkStubs.player("Bench");
+        args = new String[arguments];
+        for (int i = 0; i < arguments; i++) {
+            args[i] = "arg" + i;
+        }
+    }
+
+    @Benchmark
+    public boolean execute() {
+        return command.execute(sender, "bench", args);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+        BenchmarkStubs.reset(plugin);
+        BenchmarkStubs.deleteRecursively(dataFolder);
+    }
+}
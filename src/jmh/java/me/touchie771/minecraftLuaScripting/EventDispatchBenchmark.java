@@ -0,0 +1,77 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventException;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures dispatching one event to a growing number of Lua handlers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventDispatchBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int handlers;
+
+    private File dataFolder;
+    private MinecraftLuaScripting plugin;
+    private BenchmarkStubs.Registration registration;
+    private PlayerMoveEvent event;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("luascripting-bench").toFile();
+        plugin = BenchmarkStubs.plugin(dataFolder);
+        BenchmarkStubs.loadScripts(plugin, new File(dataFolder, "LuaScripts"), Map.of("events.lua", """
+                moved = 0
+                for i = 1, %d do
+                  on("PlayerMoveEvent", function(event)
+                    local player = event:getPlayer()
+                    if player:getName() ~= nil then
+                      moved = moved + 1
+                    end
+                  end)
+                end
+                """.formatted(handlers)));
+
+        registration = BenchmarkStubs.EVENT_REGISTRATIONS.stream()
+                .filter(r -> r.eventClass() == PlayerMoveEvent.class)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("PlayerMoveEvent dispatcher was not registered"));
+
+        Player player = BenchmarkStubs.player("Bench");
+        Location from = new Location(BenchmarkStubs.world(), 0, 64, 0);
+        Location to = new Location(BenchmarkStubs.world(), 0.2, 64, 0.1);
+        event = new PlayerMoveEvent(player, from, to);
+    }
+
+    @Benchmark
+    public void dispatch() throws EventException {
+        registration.executor().execute(registration.listener(), event);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+        BenchmarkStubs.reset(plugin);
+        BenchmarkStubs.deleteRecursively(dataFolder);
+    }
+}
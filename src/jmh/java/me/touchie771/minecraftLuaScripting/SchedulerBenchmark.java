@@ -0,0 +1,59 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one server tick's worth of scheduled Lua callbacks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SchedulerBenchmark {
+
+    private File dataFolder;
+    private MinecraftLuaScripting plugin;
+    private List<Runnable> tasks;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("luascripting-bench").toFile();
+        plugin = BenchmarkStubs.plugin(dataFolder);
+        BenchmarkStubs.loadScripts(plugin, new File(dataFolder, "LuaScripts"), Map.of("tasks.lua", """
+                ticks = 0
+                for i = 1, 100 do
+                  runRepeating(1, 1, function()
+                    ticks = ticks + 1
+                  end)
+                end
+                """));
+        tasks = List.copyOf(BenchmarkStubs.SYNC_TASKS);
+    }
+
+    @Benchmark
+    public void tick() {
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+        BenchmarkStubs.reset(plugin);
+        BenchmarkStubs.deleteRecursively(dataFolder);
+    }
+}
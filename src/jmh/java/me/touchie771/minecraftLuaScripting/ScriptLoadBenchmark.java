@@ -0,0 +1,88 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading every script in the scripts folder, with the compiled chunk cache warm or cleared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScriptLoadBenchmark {
+
+    @Param({"10", "50"})
+    public int scripts;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private File dataFolder;
+    private MinecraftLuaScripting plugin;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("luascripting-bench").toFile();
+        plugin = BenchmarkStubs.plugin(dataFolder);
+
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (int i = 0; i < scripts; i++) {
+            sources.put("script" + i + ".lua", source(i));
+        }
+        BenchmarkStubs.writeScripts(plugin, new File(dataFolder, "LuaScripts"), sources);
+    }
+
+    @Benchmark
+    public void executeScripts() {
+        if (!cached) {
+            ScriptExecutor.getScriptCache().clear();
+        }
+        ScriptExecutor.executeScripts(plugin);
+    }
+
+    @TearDown(Level.Invocation)
+    public void unload() {
+        BenchmarkStubs.reset(plugin);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+        BenchmarkStubs.reset(plugin);
+        BenchmarkStubs.deleteRecursively(dataFolder);
+    }
+
+    private static String source(int index) {
+        StringBuilder source = new StringBuilder();
+        source.append("local counters = {}\n");
+        source.append("local function bump(key)\n");
+        source.append("  counters[key] = (counters[key] or 0) + 1\n");
+        source.append("  return counters[key]\n");
+        source.append("end\n");
+        for (int i = 0; i < 20; i++) {
+            source.append("local function helper").append(i).append("(a, b)\n");
+            source.append("  if a > b then return a - b elseif a < b then return b - a end\n");
+            source.append("  return bump(\"helper").append(i).append("\")\n");
+            source.append("end\n");
+        }
+        source.append("on(\"PlayerJoinEvent\", function(event) bump(\"join\") end)\n");
+        source.append("on(\"PlayerQuitEvent\", function(event) bump(\"quit\") end)\n");
+        source.append("registerCommand(\"bench").append(index).append("\", nil, function(sender, args) return true end)\n");
+        source.append("runRepeating(20, 20, function() bump(\"tick\") end)\n");
+        return source.toString();
+    }
+}
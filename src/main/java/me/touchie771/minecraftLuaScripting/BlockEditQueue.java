@@ -0,0 +1,355 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies bulk block changes queued by scripts over as many ticks as needed, spending at most a fixed
+ * time budget per tick. Changes are grouped by chunk so each chunk is looked up once per tick, and
+ * blocks that already have the target type are skipped. Jobs run in the order they were queued.
+ * Only used on the server thread.
+ */
+public final class BlockEditQueue {
+
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+
+    private final MinecraftLuaScripting plugin;
+    private final Settings settings;
+    private final ArrayDeque<Job> jobs = new ArrayDeque<>();
+    private BukkitTask driver;
+    private long pendingBlocks;
+    private long totalApplied;
+    private int lastTickApplied;
+
+    BlockEditQueue(MinecraftLuaScripting plugin, Settings settings) {
+        this.plugin = plugin;
+        this.settings = settings;
+    }
+
+    /**
+     * Called on the server thread when a job has applied all of its changes.
+     */
+    public interface Completion {
+        void complete(Result result);
+    }
+
+    /**
+     * @param blocks Blocks visited
+     * @param changed Blocks whose type actually changed
+     * @param chunks Chunks touched
+     * @param ticks Ticks the job was worked on
+     * @param millis Time spent applying the job, summed over all ticks
+     */
+    public record Result(int blocks, int changed, int chunks, int ticks, double millis) {
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Groups a flat {@code x, y, z, x, y, z, ...} coordinate list by chunk. Coordinates outside the
+     * world's height are dropped.
+     */
+    public static List<ChunkBatch> fromList(World world, int[] coords) {
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight() - 1;
+        Map<Long, ChunkBatch> byChunk = new LinkedHashMap<>();
+        for (int i = 0; i + 2 < coords.length; i += 3) {
+            int x = coords[i];
+            int y = coords[i + 1];
+            int z = coords[i + 2];
+            if (y < minY || y > maxY) {
+                continue;
+            }
+            int cx = x >> 4;
+            int cz = z >> 4;
+            byChunk.computeIfAbsent(((long) cx << 32) | (cz & 0xFFFFFFFFL), k -> new ChunkBatch(cx, cz)).add(x & 15, y, z & 15);
+        }
+        return new ArrayList<>(byChunk.values());
+    }
+
+    /**
+     * Splits an inclusive box into one batch per chunk column. The box is clamped to the world's height.
+     */
+    public static List<ChunkBatch> fromRegion(World world, int x1, int y1, int z1, int x2, int y2, int z2) {
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minY = Math.max(Math.min(y1, y2), world.getMinHeight());
+        int maxY = Math.min(Math.max(y1, y2), world.getMaxHeight() - 1);
+        int minZ = Math.min(z1, z2);
+        int maxZ = Math.max(z1, z2);
+        List<ChunkBatch> batches = new ArrayList<>();
+        if (minY > maxY) {
+            return batches;
+        }
+        for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+            for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                batches.add(new ChunkBatch(cx, cz,
+                        Math.max(minX, cx << 4) & 15, minY, Math.max(minZ, cz << 4) & 15,
+                        Math.min(maxX, (cx << 4) + 15) & 15, maxY, Math.min(maxZ, (cz << 4) + 15) & 15));
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Counts the blocks of a set of batches.
+     */
+    public static long size(List<ChunkBatch> batches) {
+        long size = 0;
+        for (ChunkBatch batch : batches) {
+            size += batch.size();
+        }
+        return size;
+    }
+
+    /**
+     * Queues a job. Its completion is not called if the job is cancelled.
+     *
+     * @param owner The script that owns the job
+     */
+    public void submit(String owner, World world, Material material, List<ChunkBatch> batches, Completion completion) {
+        Job job = new Job(owner, world, material, batches, completion);
+        jobs.add(job);
+        pendingBlocks += job.remaining;
+        if (driver == null) {
+            driver = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        long deadline = start + settings.tickBudgetNanos();
+        int applied = 0;
+        while (!jobs.isEmpty()) {
+            Job job = jobs.peek();
+            long jobStart = System.nanoTime();
+            int done = job.apply(deadline);
+            job.nanos += System.nanoTime() - jobStart;
+            job.ticks++;
+            applied += done;
+            pendingBlocks -= done;
+            if (job.remaining == 0) {
+                jobs.poll();
+                finish(job);
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+        lastTickApplied = applied;
+        totalApplied += applied;
+
+        if (jobs.isEmpty()) {
+            stopDriver();
+        }
+    }
+
+    private void finish(Job job) {
+        if (job.completion == null) {
+            return;
+        }
+        try {
+            job.completion.complete(new Result(job.blocks, job.changed, job.batches.size(), job.ticks, job.nanos / 1e6));
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Error in setBlocks callback of " + job.owner + ": " + e);
+        }
+    }
+
+    /**
+     * Drops every queued job of a script.
+     */
+    public void cancelOwner(String owner) {
+        Iterator<Job> iterator = jobs.iterator();
+        while (iterator.hasNext()) {
+            Job job = iterator.next();
+            if (job.owner.equals(owner)) {
+                iterator.remove();
+                pendingBlocks -= job.remaining;
+            }
+        }
+        if (jobs.isEmpty()) {
+            stopDriver();
+        }
+    }
+
+    public void cancelAll() {
+        jobs.clear();
+        pendingBlocks = 0;
+        stopDriver();
+    }
+
+    private void stopDriver() {
+        if (driver != null) {
+            driver.cancel();
+            driver = null;
+        }
+        lastTickApplied = 0;
+    }
+
+    public int getQueuedJobs() {
+        return jobs.size();
+    }
+
+    public long getPendingBlocks() {
+        return pendingBlocks;
+    }
+
+    public int getLastTickApplied() {
+        return lastTickApplied;
+    }
+
+    public long getTotalApplied() {
+        return totalApplied;
+    }
+
+    private static final class Job {
+        final String owner;
+        final World world;
+        final Material material;
+        final List<ChunkBatch> batches;
+        final Completion completion;
+
+        int batchIndex;
+        long remaining;
+        int blocks;
+        int changed;
+        int ticks;
+        long nanos;
+
+        Job(String owner, World world, Material material, List<ChunkBatch> batches, Completion completion) {
+            this.owner = owner;
+            this.world = world;
+            this.material = material;
+            this.batches = batches;
+            this.completion = completion;
+            this.remaining = size(batches);
+        }
+
+        /**
+         * Applies changes until the job is done or the deadline has passed.
+         *
+         * @return The number of blocks visited
+         */
+        int apply(long deadline) {
+            int visited = 0;
+            while (batchIndex < batches.size()) {
+                ChunkBatch batch = batches.get(batchIndex);
+                Chunk chunk = world.getChunkAt(batch.cx, batch.cz);
+                while (batch.cursor < batch.size()) {
+                    Block block = batch.blockAt(chunk, batch.cursor++);
+                    if (block.getType() != material) {
+                        block.setType(material, false);
+                        changed++;
+                    }
+                    blocks++;
+                    remaining--;
+                    if (++visited % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) {
+                        return visited;
+                    }
+                }
+                batchIndex++;
+            }
+            return visited;
+        }
+    }
+
+    /**
+     * The blocks of one job that lie in one chunk: either a list of chunk-local coordinates or a box.
+     */
+    public static final class ChunkBatch {
+        final int cx;
+        final int cz;
+        int cursor;
+
+        // List form: packed (y << 8 | x << 4 | z) per block.
+        private int[] packed;
+        private int count;
+
+        // Box form, in chunk-local x/z.
+        private final boolean box;
+        private int x1;
+        private int y1;
+        private int z1;
+        private int width;
+        private int depth;
+        private int boxSize;
+
+        private ChunkBatch(int cx, int cz) {
+            this.cx = cx;
+            this.cz = cz;
+            this.box = false;
+            this.packed = new int[16];
+        }
+
+        private ChunkBatch(int cx, int cz, int x1, int y1, int z1, int x2, int y2, int z2) {
+            this.cx = cx;
+            this.cz = cz;
+            this.box = true;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.z1 = z1;
+            this.width = x2 - x1 + 1;
+            this.depth = z2 - z1 + 1;
+            this.boxSize = width * depth * (y2 - y1 + 1);
+        }
+
+        private void add(int localX, int y, int localZ) {
+            if (count == packed.length) {
+                packed = Arrays.copyOf(packed, count * 2);
+            }
+            packed[count++] = (y << 8) | (localX << 4) | localZ;
+        }
+
+        int size() {
+            return box ? boxSize : count;
+        }
+
+        Block blockAt(Chunk chunk, int index) {
+            if (box) {
+                int x = x1 + index % width;
+                int z = z1 + (index / width) % depth;
+                int y = y1 + index / (width * depth);
+                return chunk.getBlock(x, y, z);
+            }
+            int value = packed[index];
+            return chunk.getBlock((value >> 4) & 15, value >> 8, value & 15);
+        }
+    }
+
+    /**
+     * Bulk edit configuration, read from the {@code blocks} section of config.yml.
+     *
+     * @param tickBudgetMillis Time spent applying queued block changes per tick
+     * @param maxBlocksPerCall Most blocks a single setBlocks call may change
+     */
+    public record Settings(double tickBudgetMillis, long maxBlocksPerCall) {
+
+        public static Settings fromConfig(ConfigurationSection section) {
+            if (section == null) {
+                return new Settings(5.0, 4_000_000L);
+            }
+            return new Settings(
+                    Math.max(0.1, section.getDouble("tick-budget-millis", 5.0)),
+                    Math.max(1L, section.getLong("max-blocks-per-call", 4_000_000L)));
+        }
+
+        long tickBudgetNanos() {
+            return (long) (tickBudgetMillis * 1_000_000);
+        }
+    }
+}
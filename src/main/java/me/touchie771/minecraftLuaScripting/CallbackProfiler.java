@@ -0,0 +1,210 @@
+package me.touchie771.minecraftLuaScripting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-script, per-handler latency profile of Lua callbacks.
+ * When stopped, callbacks pay a single volatile read; when running, two nanoTime calls and a few adder updates.
+ */
+public final class CallbackProfiler {
+
+    /**
+     * Sub-buckets per power of two; 4 keeps the histogram error under 25%.
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int BUCKETS = 64 << SUB_BUCKET_BITS;
+
+    private static final Map<String, Map<String, HandlerStats>> STATS = new ConcurrentHashMap<>();
+    private static volatile boolean enabled;
+    private static volatile long startedAt;
+    private static volatile long stoppedAt;
+
+    private CallbackProfiler() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clears previous results and starts recording.
+     */
+    public static void start() {
+        STATS.clear();
+        startedAt = System.currentTimeMillis();
+        stoppedAt = 0;
+        enabled = true;
+    }
+
+    public static void stop() {
+        if (enabled) {
+            enabled = false;
+            stoppedAt = System.currentTimeMillis();
+        }
+    }
+
+    public static void record(String scriptName, String handlerName, long nanos) {
+        STATS.computeIfAbsent(scriptName, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(handlerName, k -> new HandlerStats(scriptName, handlerName))
+                .record(nanos);
+    }
+
+    /**
+     * @param limit The maximum number of handlers to return
+     * @return The handlers with the highest total time, highest first
+     */
+    public static List<HandlerStats> top(int limit) {
+        List<HandlerStats> all = new ArrayList<>();
+        for (Map<String, HandlerStats> handlers : STATS.values()) {
+            all.addAll(handlers.values());
+        }
+        all.sort(Comparator.comparingLong(HandlerStats::totalNanos).reversed());
+        return all.size() > limit ? all.subList(0, limit) : all;
+    }
+
+    /**
+     * @return The profiled duration in milliseconds so far
+     */
+    public static long getDurationMillis() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        long end = enabled || stoppedAt == 0 ? System.currentTimeMillis() : stoppedAt;
+        return end - startedAt;
+    }
+
+    /**
+     * Writes every recorded handler, sorted by total time, to a timestamped report file.
+     *
+     * @param folder The folder to write the report into
+     * @return The report file
+     * @throws IOException If the report cannot be written
+     */
+    public static File writeReport(File folder) throws IOException {
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Failed to create folder " + folder.getAbsolutePath());
+        }
+        File report = new File(folder, "profile-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".txt");
+
+        StringBuilder out = new StringBuilder();
+        out.append("Lua callback profile, ").append(getDurationMillis()).append(" ms recorded\n");
+        out.append(String.format("%-24s %-40s %10s %12s %10s %10s %10s%n",
+                "script", "handler", "calls", "total ms", "avg us", "p99 us", "max us"));
+        for (HandlerStats stats : top(Integer.MAX_VALUE)) {
+            out.append(String.format("%-24s %-40s %10d %12.3f %10.1f %10.1f %10.1f%n",
+                    stats.scriptName(), stats.handlerName(), stats.calls(),
+                    stats.totalNanos() / 1_000_000.0,
+                    stats.averageNanos() / 1_000.0,
+                    stats.percentileNanos(0.99) / 1_000.0,
+                    stats.maxNanos() / 1_000.0));
+        }
+        Files.writeString(report.toPath(), out, StandardCharsets.UTF_8);
+        return report;
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos < (1L << SUB_BUCKET_BITS)) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return Math.min(((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + sub, BUCKETS - 1);
+    }
+
+    private static long bucketUpperBound(int bucket) {
+        if (bucket < (1 << SUB_BUCKET_BITS)) {
+            return bucket;
+        }
+        int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        if (exponent >= 62 - SUB_BUCKET_BITS) {
+            return Long.MAX_VALUE;
+        }
+        long sub = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+        return ((1L << SUB_BUCKET_BITS) + sub + 1) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Latency counters and histogram of a single handler.
+     */
+    public static final class HandlerStats {
+        private final String scriptName;
+        private final String handlerName;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        HandlerStats(String scriptName, String handlerName) {
+            this.scriptName = scriptName;
+            this.handlerName = handlerName;
+        }
+
+        void record(long nanos) {
+            calls.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+            histogram.incrementAndGet(bucketOf(nanos));
+        }
+
+        public String scriptName() {
+            return scriptName;
+        }
+
+        public String handlerName() {
+            return handlerName;
+        }
+
+        public long calls() {
+            return calls.sum();
+        }
+
+        public long totalNanos() {
+            return total.sum();
+        }
+
+        public long maxNanos() {
+            return max.get();
+        }
+
+        public double averageNanos() {
+            long count = calls();
+            return count == 0 ? 0 : (double) totalNanos() / count;
+        }
+
+        /**
+         * @param quantile A quantile between 0 and 1
+         * @return The upper bound of the histogram bucket containing the quantile, capped at the observed maximum
+         */
+        public long percentileNanos(double quantile) {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += histogram.get(i);
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(count * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram.get(i);
+                if (seen >= threshold) {
+                    return Math.min(bucketUpperBound(i), maxNanos());
+                }
+            }
+            return maxNanos();
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent key-value store with one namespace per script.
+ * Reads and writes go to an in-memory map; changes are queued for a background writer that
+ * appends them in batches to a CRC-framed log, and rewrites the log from memory once it has
+ * grown well past the live data. A torn record at the end of the log, left by a crash, is
+ * dropped when the store is opened; a corrupt record elsewhere stops the replay, and the rest
+ * of the log is moved to store.log.corrupt instead of being thrown away.
+ */
+public final class KeyValueStore {
+
+    private static final String LOG_FILE = "store.log";
+    private static final byte OP_SET = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_CLEAR = 3;
+
+    private final Logger logger;
+    private final Path logFile;
+    private volatile Settings settings;
+    private final Map<String, Map<String, Object>> data = new ConcurrentHashMap<>();
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>();
+    private final CountDownLatch closing = new CountDownLatch(1);
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // Owned by the writer thread.
+    private FileChannel channel;
+    private volatile long logBytes;
+    private long logRecords;
+    private volatile long compactions;
+
+    private record Record(byte op, String namespace, String key, Object value) {
+    }
+
+    private KeyValueStore(Logger logger, Path folder, Settings settings) {
+        this.logger = logger;
+        this.logFile = folder.resolve(LOG_FILE);
+        this.settings = settings;
+        this.writer = new Thread(this::runWriter, "LuaStoreWriter");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens the store in a folder, replaying its log into memory.
+     *
+     * @throws IOException If the folder or log cannot be opened
+     */
+    public static KeyValueStore open(Path folder, Logger logger, Settings settings) throws IOException {
+        Files.createDirectories(folder);
+        KeyValueStore store = new KeyValueStore(logger, folder, settings);
+        store.replay();
+        store.channel = FileChannel.open(store.logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        store.writer.start();
+        return store;
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(logFile);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long valid = 0;
+        boolean torn = true;
+        while (buffer.remaining() >= 8) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                // Runs past the end: a write cut off by a crash, unless the length itself is garbage.
+                torn = length >= 0;
+                break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, buffer.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                torn = buffer.position() + length == bytes.length;
+                break;
+            }
+            try {
+                apply(decode(new DataInputStream(new ByteArrayInputStream(bytes, buffer.position(), length))));
+            } catch (IOException e) {
+                torn = buffer.position() + length == bytes.length;
+                break;
+            }
+            buffer.position(buffer.position() + length);
+            valid = buffer.position();
+            logRecords++;
+        }
+
+        if (valid < bytes.length) {
+            // Crashes can also leave zeros behind the last complete record.
+            if (torn || isZero(bytes, (int) valid)) {
+                logger.warning("Dropped an incomplete record (" + (bytes.length - valid) + " bytes) at the end of " + logFile);
+            } else {
+                // Everything after a corrupt record is cut off; keep it for manual recovery.
+                Path corrupt = corruptFile();
+                Files.write(corrupt, Arrays.copyOfRange(bytes, (int) valid, bytes.length));
+                logger.severe("Found a corrupt record in " + logFile + " after " + logRecords + " records; moved the remaining "
+                        + (bytes.length - valid) + " bytes to " + corrupt.getFileName());
+            }
+            try (FileChannel truncate = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                truncate.truncate(valid);
+                truncate.force(true);
+            }
+        }
+        logBytes = valid;
+    }
+
+    private static boolean isZero(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return store.log.corrupt, or store.log.corrupt.N if earlier ones exist
+     */
+    private Path corruptFile() {
+        Path file = logFile.resolveSibling(LOG_FILE + ".corrupt");
+        for (int i = 1; Files.exists(file); i++) {
+            file = logFile.resolveSibling(LOG_FILE + ".corrupt." + i);
+        }
+        return file;
+    }
+
+    private void apply(Record record) {
+        switch (record.op()) {
+            case OP_SET -> data.computeIfAbsent(record.namespace(), k -> new ConcurrentHashMap<>()).put(record.key(), record.value());
+            case OP_DELETE -> {
+                Map<String, Object> namespace = data.get(record.namespace());
+                if (namespace != null) {
+                    namespace.remove(record.key());
+                }
+            }
+            case OP_CLEAR -> data.remove(record.namespace());
+            default -> throw new IllegalStateException("Unknown store operation " + record.op());
+        }
+    }
+
+    /**
+     * @return The stored value, as produced by {@link LuaValueCodec#toJava}, or null if absent
+     */
+    public Object get(String namespace, String key) {
+        Map<String, Object> values = data.get(namespace);
+        return values == null ? null : values.get(key);
+    }
+
+    /**
+     * Stores a value. The value must not be modified afterwards.
+     *
+     * @param value A value produced by {@link LuaValueCodec#toJava}, or null to delete the key
+     */
+    public void set(String namespace, String key, Object value) {
+        if (value == null) {
+            delete(namespace, key);
+            return;
+        }
+        submit(new Record(OP_SET, namespace, key, value));
+    }
+
+    public void delete(String namespace, String key) {
+        submit(new Record(OP_DELETE, namespace, key, null));
+    }
+
+    public void clear(String namespace) {
+        submit(new Record(OP_CLEAR, namespace, null, null));
+    }
+
+    public Set<String> keys(String namespace) {
+        Map<String, Object> values = data.get(namespace);
+        return values == null ? Set.of() : Collections.unmodifiableSet(values.keySet());
+    }
+
+    private void submit(Record record) {
+        // Under the same lock as close(), so nothing is queued once the writer may have finished.
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("the store is closed");
+            }
+            apply(record);
+            queue.add(record);
+        }
+    }
+
+    private void runWriter() {
+        List<Record> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Record first = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Give the batch time to fill up, unless the store is closing.
+                closing.await(settings.flushIntervalMillis(), TimeUnit.MILLISECONDS);
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            queue.drainTo(batch);
+            try {
+                writeBatch(batch);
+                if (logBytes >= settings.compactMinBytes() && logRecords > 2L * getKeyCount()) {
+                    compact();
+                }
+            } catch (IOException e) {
+                logger.severe("Failed to write script store log: " + e);
+            }
+            batch.clear();
+        }
+
+        try {
+            channel.force(true);
+            channel.close();
+        } catch (IOException e) {
+            logger.severe("Failed to close script store log: " + e);
+        }
+    }
+
+    /**
+     * Appends a batch, dropping changes that are overwritten later in the same batch.
+     */
+    private void writeBatch(List<Record> batch) throws IOException {
+        Map<String, Record> latest = new LinkedHashMap<>();
+        for (Record record : batch) {
+            if (record.op() == OP_CLEAR) {
+                latest.keySet().removeIf(key -> key.startsWith(record.namespace() + '\0'));
+            }
+            String key = record.op() == OP_CLEAR ? record.namespace() + '\1' : record.namespace() + '\0' + record.key();
+            latest.remove(key);
+            latest.put(key, record);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (Record record : latest.values()) {
+            frame(bytes, record);
+        }
+        write(channel, bytes.toByteArray());
+        if (settings.fsync()) {
+            channel.force(false);
+        }
+        logBytes += bytes.size();
+        logRecords += latest.size();
+    }
+
+    /**
+     * Rewrites the log from the in-memory map and atomically replaces the old one.
+     * Changes made meanwhile are still queued and are appended to the new log afterwards.
+     */
+    private void compact() throws IOException {
+        Path temp = logFile.resolveSibling(LOG_FILE + ".compact");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long records = 0;
+        for (Map.Entry<String, Map<String, Object>> namespace : data.entrySet()) {
+            for (Map.Entry<String, Object> entry : namespace.getValue().entrySet()) {
+                frame(bytes, new Record(OP_SET, namespace.getKey(), entry.getKey(), entry.getValue()));
+                records++;
+            }
+        }
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(out, bytes.toByteArray());
+            out.force(true);
+        }
+        channel.close();
+        Files.move(temp, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        logBytes = bytes.size();
+        logRecords = records;
+        compactions++;
+    }
+
+    private static void frame(ByteArrayOutputStream out, Record record) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeByte(record.op());
+        LuaValueCodec.writeString(data, record.namespace());
+        if (record.op() != OP_CLEAR) {
+            LuaValueCodec.writeString(data, record.key());
+        }
+        if (record.op() == OP_SET) {
+            LuaValueCodec.write(data, record.value());
+        }
+        byte[] body = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(body.length);
+        header.writeInt((int) crc.getValue());
+        out.write(body);
+    }
+
+    private static Record decode(DataInputStream in) throws IOException {
+        byte op = in.readByte();
+        if (op < OP_SET || op > OP_CLEAR) {
+            throw new IOException("unknown store operation " + op);
+        }
+        String namespace = LuaValueCodec.readString(in);
+        String key = op == OP_CLEAR ? null : LuaValueCodec.readString(in);
+        Object value = op == OP_SET ? LuaValueCodec.read(in) : null;
+        return new Record(op, namespace, key, value);
+    }
+
+    private static void write(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Applies new settings, e.g. after the config was reloaded. The writer uses them from its next batch.
+     */
+    public void setSettings(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Stops accepting changes and waits for the writer to flush everything that is queued.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        closing.countDown();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            if (writer.isAlive()) {
+                logger.warning("Script store writer did not finish in time; recent changes may be lost");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getNamespaceCount() {
+        return data.size();
+    }
+
+    public long getKeyCount() {
+        long keys = 0;
+        for (Map<String, Object> values : data.values()) {
+            keys += values.size();
+        }
+        return keys;
+    }
+
+    public int getPendingWrites() {
+        return queue.size();
+    }
+
+    public long getLogBytes() {
+        return logBytes;
+    }
+
+    public long getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * Store configuration, read from the {@code store} section of config.yml.
+     *
+     * @param flushIntervalMillis How long the writer collects changes before writing a batch
+     * @param fsync Whether every batch is forced to disk
+     * @param compactMinBytes Log size below which the log is never compacted
+     */
+    public record Settings(long flushIntervalMillis, boolean fsync, long compactMinBytes) {
+
+        public static Settings fromConfig(ConfigurationSection section) {
+            if (section == null) {
+                return new Settings(1000L, false, 1024L * 1024L);
+            }
+            return new Settings(
+                    Math.max(0L, section.getLong("flush-interval-millis", 1000L)),
+                    section.getBoolean("fsync", false),
+                    Math.max(0L, section.getLong("compact-min-bytes", 1024L * 1024L)));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies Lua values into plain Java values and back, so data can cross between Lua states
+ * without either state ever touching the other's tables, and encodes those Java values in a
+ * compact binary form for persistence.
+ * Only nil, booleans, numbers, strings and tables of those are supported.
+ */
+public final class LuaValueCodec {
+
+    private static final int MAX_DEPTH = 64;
+
+    private static final byte TAG_NIL = 0;
+    private static final byte TAG_FALSE = 1;
+    private static final byte TAG_TRUE = 2;
+    private static final byte TAG_INT = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_STRING = 5;
+    private static final byte TAG_TABLE = 6;
+
+    private LuaValueCodec() {
+    }
+
+    /**
+     * Deep-copies a Lua value into {@code null}, {@link Boolean}, {@link Integer}, {@link Double},
+     * {@link String} or a {@link LinkedHashMap} of those.
+     *
+     * @throws IllegalArgumentException If the value contains functions, userdata, threads or cyclic tables
+     */
+    public static Object toJava(LuaValue value) {
+        return toJava(value, Collections.newSetFromMap(new IdentityHashMap<>()), 0);
+    }
+
+    private static Object toJava(LuaValue value, Set<LuaValue> path, int depth) {
+        switch (value.type()) {
+            case LuaValue.TNIL:
+                return null;
+            case LuaValue.TBOOLEAN:
+                return value.toboolean();
+            case LuaValue.TNUMBER:
+                return value.isinttype() ? (Object) value.toint() : (Object) value.todouble();
+            case LuaValue.TSTRING:
+                return value.tojstring();
+            case LuaValue.TTABLE:
+                if (depth >= MAX_DEPTH) {
+                    throw new IllegalArgumentException("tables are nested deeper than " + MAX_DEPTH + " levels");
+                }
+                if (!path.add(value)) {
+                    throw new IllegalArgumentException("cyclic tables cannot be copied");
+                }
+                Map<Object, Object> copy = new LinkedHashMap<>();
+                LuaValue key = LuaValue.NIL;
+                while (true) {
+                    Varargs next = value.next(key);
+                    if ((key = next.arg1()).isnil()) {
+                        break;
+                    }
+                    copy.put(toJava(key, path, depth + 1), toJava(next.arg(2), path, depth + 1));
+                }
+                path.remove(value);
+                return copy;
+            default:
+                throw new IllegalArgumentException("values of type " + value.typename() + " cannot be copied");
+        }
+    }
+
+    /**
+     * Builds a fresh Lua value from a value produced by {@link #toJava(LuaValue)}.
+     * Lists become 1-based array tables.
+     */
+    public static LuaValue toLua(Object value) {
+        if (value == null) {
+            return LuaValue.NIL;
+        }
+        if (value instanceof Boolean bool) {
+            return LuaValue.valueOf(bool);
+        }
+        if (value instanceof Integer integer) {
+            return LuaValue.valueOf(integer);
+        }
+        if (value instanceof Number number) {
+            return LuaValue.valueOf(number.doubleValue());
+        }
+        if (value instanceof String string) {
+            return LuaValue.valueOf(string);
+        }
+        if (value instanceof Map<?, ?> map) {
+            LuaTable table = new LuaTable();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                table.rawset(toLua(entry.getKey()), toLua(entry.getValue()));
+            }
+            return table;
+        }
+        if (value instanceof List<?> list) {
+            LuaTable table = new LuaTable(list.size(), 0);
+            for (int i = 0; i < list.size(); i++) {
+                table.rawset(i + 1, toLua(list.get(i)));
+            }
+            return table;
+        }
+        throw new IllegalArgumentException("values of type " + value.getClass().getSimpleName() + " cannot be copied");
+    }
+
+    /**
+     * Writes a value produced by {@link #toJava(LuaValue)} in binary form.
+     */
+    public static void write(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NIL);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(bool ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Integer integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt(integer);
+        } else if (value instanceof Number number) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(number.doubleValue());
+        } else if (value instanceof String string) {
+            out.writeByte(TAG_STRING);
+            writeString(out, string);
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(TAG_TABLE);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(out, entry.getKey());
+                write(out, entry.getValue());
+            }
+        } else {
+            throw new IllegalArgumentException("values of type " + value.getClass().getSimpleName() + " cannot be encoded");
+        }
+    }
+
+    /**
+     * Reads a value written by {@link #write(DataOutput, Object)}.
+     *
+     * @throws IOException If the data is truncated or malformed
+     */
+    public static Object read(DataInput in) throws IOException {
+        return read(in, 0);
+    }
+
+    private static Object read(DataInput in, int depth) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NIL:
+                return null;
+            case TAG_FALSE:
+                return false;
+            case TAG_TRUE:
+                return true;
+            case TAG_INT:
+                return in.readInt();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_STRING:
+                return readString(in);
+            case TAG_TABLE:
+                if (depth >= MAX_DEPTH) {
+                    throw new IOException("tables are nested deeper than " + MAX_DEPTH + " levels");
+                }
+                int size = in.readInt();
+                if (size < 0) {
+                    throw new IOException("negative table size");
+                }
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(read(in, depth + 1), read(in, depth + 1));
+                }
+                return map;
+            default:
+                throw new IOException("unknown value tag " + tag);
+        }
+    }
+
+    public static void writeString(DataOutput out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("negative string length");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,260 @@
+package me.touchie771.minecraftLuaScripting;
+
+import me.touchie771.minecraftLuaScripting.api.LoggerApi;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * A fixed pool of threads running worker scripts from {@code LuaScripts/workers}.
+ * Every worker thread owns its own Lua state per worker script, so jobs never share tables with
+ * the server thread: inputs and results are deep-copied through {@link LuaValueCodec} and results
+ * are handed back to the submitting script on the server thread.
+ */
+public final class LuaWorkerPool {
+
+    private static final Pattern WORKER_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final MinecraftLuaScripting plugin;
+    private final File workersFolder;
+    private final ScriptCache scriptCache;
+    private final ScriptLog scriptLog;
+    private final Settings settings;
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<Map<String, Worker>> workers = ThreadLocal.withInitial(HashMap::new);
+
+    private final AtomicInteger nextJobId = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    LuaWorkerPool(MinecraftLuaScripting plugin, File workersFolder, ScriptCache scriptCache, ScriptLog scriptLog, Settings settings) {
+        this.plugin = plugin;
+        this.workersFolder = workersFolder;
+        this.scriptCache = scriptCache;
+        this.scriptLog = scriptLog;
+        this.settings = settings;
+
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(settings.threads(), settings.threads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.queueSize()), runnable -> {
+            Thread thread = new Thread(runnable, "LuaWorker-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a job for a worker script. Must be called on the server thread.
+     *
+     * @param runtime The submitting script, which receives the result
+     * @param workerName The worker script name, without the .lua extension
+     * @param input The job input, deep-copied before this method returns
+     * @param callback Called on the server thread with {@code (result, nil)} or {@code (nil, error)}
+     * @return The job id
+     * @throws IllegalArgumentException If the worker name is invalid or the input cannot be copied
+     * @throws RejectedExecutionException If the job queue is full
+     */
+    public int submit(ScriptRuntime runtime, String workerName, LuaValue input, LuaValue callback) {
+        if (!WORKER_NAME.matcher(workerName).matches()) {
+            throw new IllegalArgumentException("invalid worker name: " + workerName);
+        }
+        Object payload = LuaValueCodec.toJava(input);
+        int jobId = nextJobId.incrementAndGet();
+        try {
+            executor.execute(() -> run(runtime, workerName, payload, callback));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        return jobId;
+    }
+
+    private void run(ScriptRuntime runtime, String workerName, Object payload, LuaValue callback) {
+        if (runtime.isClosed()) {
+            return;
+        }
+
+        Object result = null;
+        String error = null;
+        try {
+            result = worker(workerName).run(payload);
+            completed.increment();
+        } catch (IOException | RuntimeException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+            failed.increment();
+        }
+
+        Object finalResult = result;
+        String finalError = error;
+        try {
+            Bukkit.getScheduler().runTask(plugin, () -> deliver(runtime, workerName, callback, finalResult, finalError));
+        } catch (RuntimeException e) {
+            // The plugin is being disabled; nobody is left to receive the result.
+        }
+    }
+
+    private void deliver(ScriptRuntime runtime, String workerName, LuaValue callback, Object result, String error) {
+        if (runtime.isClosed()) {
+            return;
+        }
+        Varargs args = error == null
+                ? LuaValue.varargsOf(LuaValueCodec.toLua(result), LuaValue.NIL)
+                : LuaValue.varargsOf(LuaValue.NIL, LuaValue.valueOf(error));
+        try {
+            runtime.invoke("runWorker(" + workerName + ")", callback, args);
+        } catch (Exception e) {
+            plugin.getLogger().severe("Error in worker callback of " + runtime.getName() + ": " + e);
+        }
+    }
+
+    /**
+     * Returns this thread's instance of a worker script, loading it on first use and again once the file
+     * has changed, so edits take effect with the next job.
+     */
+    private Worker worker(String workerName) throws IOException {
+        Map<String, Worker> loaded = workers.get();
+        Worker worker = loaded.get(workerName);
+        if (worker == null || !worker.isCurrent()) {
+            worker = load(workerName);
+            loaded.put(workerName, worker);
+        }
+        return worker;
+    }
+
+    private Worker load(String workerName) throws IOException {
+        File file = new File(workersFolder, workerName + ".lua");
+        if (!file.isFile()) {
+            throw new IOException("worker script not found: workers/" + file.getName());
+        }
+
+        Globals globals = JsePlatform.standardGlobals();
+        // Workers have no business touching the server; keep Java reflection out of reach.
+        globals.set("luajava", LuaValue.NIL);
+        globals.get("package").get("loaded").set("luajava", LuaValue.NIL);
+        Logger logger = plugin.getLogger();
+        ScriptLog.Channel log = scriptLog.channel("workers/" + file.getName());
+        globals.set("info", new LoggerApi.Info(log));
+        globals.set("warning", new LoggerApi.Warning(log));
+        globals.set("error", new LoggerApi.Error(log));
+
+        ScriptWatchdog watchdog = null;
+        if (settings.maxInstructions() > 0 || settings.maxMillis() > 0) {
+            watchdog = new ScriptWatchdog("workers/" + file.getName(), logger, new ScriptWatchdog.Settings(
+                    true, settings.maxInstructions(), settings.maxMillis(), 1024, Set.of()));
+            globals.load(watchdog);
+            globals.set("debug", LuaValue.NIL);
+            globals.get("package").get("loaded").set("debug", LuaValue.NIL);
+        }
+
+        long size = file.length();
+        long modified = file.lastModified();
+        String chunkName = "@" + file.toPath();
+        Prototype prototype = scriptCache.load(file, chunkName);
+        LuaValue handler = globals.loader.load(prototype, chunkName, globals).call();
+        if (!handler.isfunction()) {
+            throw new LuaError("worker script workers/" + file.getName() + " must return a function");
+        }
+        return new Worker(workerName, file, size, modified, handler, watchdog);
+    }
+
+    /**
+     * Stops accepting jobs and interrupts running ones. Results of unfinished jobs are dropped.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Lua worker jobs are still running after shutdown; they will be abandoned");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getThreads() {
+        return settings.threads();
+    }
+
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    public int getActive() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private record Worker(String name, File file, long size, long modified, LuaValue handler, ScriptWatchdog watchdog) {
+
+        boolean isCurrent() {
+            return file.length() == size && file.lastModified() == modified;
+        }
+
+        Object run(Object payload) {
+            LuaValue input = LuaValueCodec.toLua(payload);
+            if (watchdog == null || !watchdog.enter("workers/" + name)) {
+                return LuaValueCodec.toJava(handler.call(input));
+            }
+            try {
+                return LuaValueCodec.toJava(handler.call(input));
+            } finally {
+                watchdog.exit();
+            }
+        }
+    }
+
+    /**
+     * Worker pool configuration, read from the {@code workers} section of config.yml.
+     *
+     * @param threads Number of worker threads
+     * @param queueSize Maximum number of queued jobs before submissions are rejected
+     * @param maxInstructions Maximum instructions per job, 0 for unlimited
+     * @param maxMillis Maximum wall-clock time per job in milliseconds, 0 for unlimited
+     */
+    public record Settings(int threads, int queueSize, long maxInstructions, long maxMillis) {
+
+        public static Settings fromConfig(ConfigurationSection section) {
+            int defaultThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            if (section == null) {
+                return new Settings(defaultThreads, 1024, 0L, 5000L);
+            }
+            int threads = section.getInt("threads", 0);
+            return new Settings(
+                    threads > 0 ? threads : defaultThreads,
+                    Math.max(1, section.getInt("queue-size", 1024)),
+                    Math.max(0L, section.getLong("max-instructions", 0L)),
+                    Math.max(0L, section.getLong("max-millis", 5000L)));
+        }
+    }
+}
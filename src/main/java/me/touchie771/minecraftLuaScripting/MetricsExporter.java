@@ -0,0 +1,138 @@
+package me.touchie771.minecraftLuaScripting;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Publishes {@link ScriptMetrics}: samples the gauges on the server thread once a second, and writes the
+ * Prometheus text to a file on an interval and/or serves it over HTTP at {@code /metrics}.
+ */
+final class MetricsExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MinecraftLuaScripting plugin;
+    private final BukkitTask sampler;
+    private BukkitTask fileWriter;
+    private HttpServer server;
+    private ExecutorService serverThread;
+
+    private MetricsExporter(MinecraftLuaScripting plugin) {
+        this.plugin = plugin;
+        this.sampler = Bukkit.getScheduler().runTaskTimer(plugin, ScriptMetrics::sample, 1L, 20L);
+    }
+
+    static MetricsExporter start(MinecraftLuaScripting plugin, Settings settings) {
+        MetricsExporter exporter = new MetricsExporter(plugin);
+        if (!settings.file().isEmpty()) {
+            Path file = plugin.getDataFolder().toPath().resolve(settings.file());
+            long period = settings.fileIntervalSeconds() * 20L;
+            exporter.fileWriter = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> exporter.writeFile(file), period, period);
+        }
+        if (settings.httpPort() > 0) {
+            try {
+                exporter.startServer(settings.httpHost(), settings.httpPort());
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to serve metrics on " + settings.httpHost() + ":" + settings.httpPort() + ": " + e);
+            }
+        }
+        ScriptMetrics.setEnabled(true);
+        return exporter;
+    }
+
+    private void writeFile(Path file) {
+        try {
+            StringBuilder text = new StringBuilder(4096);
+            ScriptMetrics.write(text);
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            // Scrapers reading the file never see a half-written version.
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, text, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to write Lua metrics to " + file + ": " + e);
+        }
+    }
+
+    private void startServer(String host, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", this::handle);
+        serverThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "LuaMetricsServer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(serverThread);
+        server.start();
+        plugin.getLogger().info("Serving Lua metrics on http://" + host + ":" + port + "/metrics");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder text = new StringBuilder(4096);
+            ScriptMetrics.write(text);
+            byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    void stop() {
+        ScriptMetrics.setEnabled(false);
+        sampler.cancel();
+        if (fileWriter != null) {
+            fileWriter.cancel();
+        }
+        if (server != null) {
+            server.stop(0);
+            serverThread.shutdownNow();
+        }
+    }
+
+    /**
+     * Metrics configuration, read from the {@code metrics} section of config.yml.
+     *
+     * @param enabled Whether metrics are collected at all
+     * @param file File under the plugin folder to write the metrics to, empty for none
+     * @param fileIntervalSeconds How often the file is rewritten
+     * @param httpHost Address the HTTP endpoint binds to
+     * @param httpPort Port of the HTTP endpoint, 0 for none
+     */
+    record Settings(boolean enabled, String file, long fileIntervalSeconds, String httpHost, int httpPort) {
+
+        static Settings fromConfig(ConfigurationSection section) {
+            if (section == null) {
+                return new Settings(false, "metrics.prom", 15L, "127.0.0.1", 0);
+            }
+            String file = section.getString("file", "metrics.prom");
+            return new Settings(
+                    section.getBoolean("enabled", false),
+                    file != null ? file : "",
+                    Math.max(1L, section.getLong("file-interval-seconds", 15L)),
+                    section.getString("http-host", "127.0.0.1"),
+                    Math.max(0, section.getInt("http-port", 0)));
+        }
+    }
+}
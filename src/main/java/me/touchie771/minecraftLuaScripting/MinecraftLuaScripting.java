@@ -1,14 +1,29 @@
 package me.touchie771.minecraftLuaScripting;
 
 import me.touchie771.minecraftLuaScripting.commands.LuaScriptCommand;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 
+import java.io.File;
 import java.util.Objects;
 
 public final class MinecraftLuaScripting extends JavaPlugin {
 
+    public MinecraftLuaScripting() {
+    }
+
+    /**
+     * Initialization constructor for running the plugin outside a server, used by the benchmarks.
+     */
+    @SuppressWarnings("deprecation")
+    MinecraftLuaScripting(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
+
     @Override
     public void onEnable() {
+        saveDefaultConfig();
         if (!ScriptExecutor.setup(this)) {
             return;
         }
@@ -20,6 +35,6 @@ public final class MinecraftLuaScripting extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        ScriptExecutor.cleanup(this);
+        ScriptExecutor.shutdown(this);
     }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package me.touchie771.minecraftLuaScripting;
+
+import me.touchie771.minecraftLuaScripting.bindings.LuaBindings;
+import me.touchie771.minecraftLuaScripting.bindings.ReadOnlyTable;
+import me.touchie771.minecraftLuaScripting.util.IntObjectMap;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.luaj.vm2.LuaValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Index of the online players, kept up to date by join and quit events.
+ * Each player's Lua handle is created once when they join, and the player lists handed to scripts are
+ * shared read-only tables that are only rebuilt after the next join or quit. Only used on the server thread.
+ */
+public final class PlayerIndex implements Listener {
+
+    private final Map<UUID, Entry> byUuid = new LinkedHashMap<>();
+    private final Map<String, Entry> byName = new HashMap<>();
+    private final IntObjectMap<Entry> byEntityId = new IntObjectMap<>();
+    private int version;
+    private ReadOnlyTable names;
+    private ReadOnlyTable handles;
+
+    private record Entry(Player player, LuaValue handle) {
+    }
+
+    /**
+     * Fills the index with the players that are online right now.
+     */
+    void rebuild() {
+        byUuid.clear();
+        byName.clear();
+        byEntityId.clear();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            add(player);
+        }
+        changed();
+    }
+
+    // Added early so scripts' own join handlers already see the player, removed last for the same reason.
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        add(event.getPlayer());
+        changed();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        Entry entry = byUuid.remove(player.getUniqueId());
+        if (entry != null) {
+            byName.remove(player.getName().toLowerCase(Locale.ROOT), entry);
+            byEntityId.remove(player.getEntityId());
+            changed();
+        }
+    }
+
+    private void add(Player player) {
+        Entry entry = new Entry(player, LuaBindings.coerce(player));
+        byUuid.put(player.getUniqueId(), entry);
+        byName.put(player.getName().toLowerCase(Locale.ROOT), entry);
+        byEntityId.put(player.getEntityId(), entry);
+    }
+
+    private void changed() {
+        version++;
+        names = null;
+        handles = null;
+    }
+
+    /**
+     * @return A number that changes whenever a player joins or quits
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return byUuid.size();
+    }
+
+    /**
+     * @return The names of the online players, as a shared read-only list
+     */
+    public LuaValue getNames() {
+        if (names == null) {
+            List<LuaValue> values = new ArrayList<>(byUuid.size());
+            for (Entry entry : byUuid.values()) {
+                values.add(LuaValue.valueOf(entry.player().getName()));
+            }
+            names = new ReadOnlyTable(values);
+        }
+        return names;
+    }
+
+    /**
+     * @return The handles of the online players, as a shared read-only list
+     */
+    public LuaValue getHandles() {
+        if (handles == null) {
+            List<LuaValue> values = new ArrayList<>(byUuid.size());
+            for (Entry entry : byUuid.values()) {
+                values.add(entry.handle());
+            }
+            handles = new ReadOnlyTable(values);
+        }
+        return handles;
+    }
+
+    /**
+     * Finds an online player by exact name (ignoring case) or UUID string.
+     *
+     * @return The player's handle, or null if no such player is indexed
+     */
+    public LuaValue find(String nameOrUuid) {
+        Entry entry = byName.get(nameOrUuid.toLowerCase(Locale.ROOT));
+        if (entry == null && nameOrUuid.length() == 36) {
+            try {
+                entry = byUuid.get(UUID.fromString(nameOrUuid));
+            } catch (IllegalArgumentException e) {
+                // Not a UUID.
+            }
+        }
+        return entry == null ? null : entry.handle();
+    }
+
+    /**
+     * @return The handle of an indexed player, or null if they are not indexed
+     */
+    public LuaValue get(Player player) {
+        Entry entry = byUuid.get(player.getUniqueId());
+        return entry == null ? null : entry.handle();
+    }
+
+    /**
+     * @return The handle of the online player with this entity id, or null
+     */
+    public LuaValue getByEntityId(int entityId) {
+        Entry entry = byEntityId.get(entityId);
+        return entry == null ? null : entry.handle();
+    }
+}
@@ -0,0 +1,235 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.luaj.vm2.LoadState;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.compiler.DumpState;
+import org.luaj.vm2.compiler.LuaC;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Cache of compiled Lua prototypes keyed by script path, size, modification time and content hash.
+ * The file is only read and hashed when its size or modification time changed.
+ * Entries are kept in memory and, when a disk folder is configured, persisted as LuaJ bytecode (one file
+ * per script, tagged with the content hash) so unchanged scripts skip lexing and parsing after a restart.
+ */
+public final class ScriptCache {
+
+    private static final String BYTECODE_EXTENSION = ".luac";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Logger logger;
+    private final String version;
+    private volatile File diskFolder;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ScriptCache(Logger logger, String version) {
+        this.logger = logger;
+        this.version = version;
+    }
+
+    /**
+     * Enables or disables the on-disk bytecode store.
+     *
+     * @param folder The folder holding persisted bytecode, or null to keep entries in memory only
+     */
+    public void setDiskFolder(File folder) {
+        if (folder != null && !folder.exists() && !folder.mkdirs()) {
+            logger.warning("Failed to create script cache folder: " + folder.getAbsolutePath());
+            folder = null;
+        }
+        this.diskFolder = folder;
+    }
+
+    /**
+     * Returns the compiled prototype for a script, compiling it only when no cached entry matches.
+     * Safe to call from any thread.
+     *
+     * @param script The script file
+     * @param chunkName The chunk name used in Lua error messages
+     * @return The compiled prototype
+     * @throws IOException If the script cannot be read
+     */
+    public Prototype load(File script, String chunkName) throws IOException {
+        String path = script.getAbsolutePath();
+        long size = script.length();
+        long modified = script.lastModified();
+
+        Entry entry = entries.get(path);
+        if (entry != null && entry.matches(chunkName, size, modified)) {
+            hits.increment();
+            return entry.prototype();
+        }
+
+        // Size or modification time changed: only the content hash can tell whether the script did.
+        byte[] source = Files.readAllBytes(script.toPath());
+        String hash = sha256(source);
+        if (entry != null && entry.chunkName().equals(chunkName) && entry.hash().equals(hash)) {
+            hits.increment();
+            entries.put(path, new Entry(chunkName, size, modified, hash, entry.prototype()));
+            return entry.prototype();
+        }
+
+        // One bytecode file per script, overwritten when the script changes.
+        File bytecodeFile = bytecodeFile(chunkName);
+        Prototype prototype = readBytecode(bytecodeFile, chunkName, hash);
+        if (prototype != null) {
+            diskHits.increment();
+        } else {
+            misses.increment();
+            prototype = LuaC.instance.compile(new ByteArrayInputStream(source), chunkName);
+            writeBytecode(bytecodeFile, hash, prototype);
+        }
+
+        entries.put(path, new Entry(chunkName, size, modified, hash, prototype));
+        return prototype;
+    }
+
+    /**
+     * Drops an in-memory entry, e.g. after the script file was deleted.
+     * The persisted bytecode is deleted too once the script file is gone.
+     */
+    public void invalidate(File script) {
+        Entry entry = entries.remove(script.getAbsolutePath());
+        if (entry == null || script.exists()) {
+            return;
+        }
+        File bytecodeFile = bytecodeFile(entry.chunkName());
+        if (bytecodeFile != null && bytecodeFile.isFile() && !bytecodeFile.delete()) {
+            logger.warning("Failed to delete cached bytecode: " + bytecodeFile.getName());
+        }
+    }
+
+    /**
+     * Drops all in-memory entries and deletes persisted bytecode.
+     */
+    public void clear() {
+        entries.clear();
+        File folder = diskFolder;
+        if (folder == null) {
+            return;
+        }
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(BYTECODE_EXTENSION));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.delete()) {
+                logger.warning("Failed to delete cached bytecode: " + file.getName());
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isPersistent() {
+        return diskFolder != null;
+    }
+
+    private File bytecodeFile(String chunkName) {
+        File folder = diskFolder;
+        if (folder == null) {
+            return null;
+        }
+        String key = sha256(chunkName.getBytes(StandardCharsets.UTF_8));
+        return new File(folder, key + BYTECODE_EXTENSION);
+    }
+
+    /**
+     * The header of a bytecode file. The chunk name is baked into the bytecode, so the file only matches
+     * the same plugin build and the same source.
+     */
+    private String header(String hash) {
+        return version + '\0' + hash;
+    }
+
+    private Prototype readBytecode(File file, String chunkName, String hash) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (!in.readUTF().equals(header(hash))) {
+                // An older version of the script; overwritten once it is compiled.
+                return null;
+            }
+            return LoadState.instance.undump(in, chunkName);
+        } catch (Exception e) {
+            logger.warning("Discarding unreadable cached bytecode for " + chunkName + ": " + e);
+            if (!file.delete()) {
+                logger.warning("Failed to delete cached bytecode: " + file.getName());
+            }
+            return null;
+        }
+    }
+
+    private void writeBytecode(File file, String hash, Prototype prototype) {
+        if (file == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new DataOutputStream(out).writeUTF(header(hash));
+            DumpState.dump(prototype, out, false);
+            // A unique temp file, since a startup compile and the watcher may write the same script at once.
+            Path tmp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            try {
+                Files.write(tmp, out.toByteArray());
+                Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (Exception e) {
+            logger.warning("Failed to persist compiled bytecode for " + prototype.source + ": " + e);
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Entry(String chunkName, long size, long modified, String hash, Prototype prototype) {
+        boolean matches(String chunkName, long size, long modified) {
+            return this.size == size
+                    && this.modified == modified
+                    && this.chunkName.equals(chunkName);
+        }
+    }
+}
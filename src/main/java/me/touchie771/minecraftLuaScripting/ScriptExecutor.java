@@ -1,17 +1,26 @@
 package me.touchie771.minecraftLuaScripting;
 
+import me.touchie771.minecraftLuaScripting.api.CoroutineApi;
 import me.touchie771.minecraftLuaScripting.api.EntityApi;
+import me.touchie771.minecraftLuaScripting.api.FileApi;
 import me.touchie771.minecraftLuaScripting.api.InventoryApi;
 import me.touchie771.minecraftLuaScripting.api.LoggerApi;
 import me.touchie771.minecraftLuaScripting.api.PlayerApi;
 import me.touchie771.minecraftLuaScripting.api.SchedulerApi;
 import me.touchie771.minecraftLuaScripting.api.ServerApi;
+import me.touchie771.minecraftLuaScripting.api.StoreApi;
+import me.touchie771.minecraftLuaScripting.api.WorkerApi;
 import me.touchie771.minecraftLuaScripting.api.WorldApi;
+import me.touchie771.minecraftLuaScripting.bindings.StaticBinding;
 import me.touchie771.minecraftLuaScripting.commandHandlers.CommandRegister;
+import me.touchie771.minecraftLuaScripting.eventHandlers.EventDispatcher;
+import me.touchie771.minecraftLuaScripting.eventHandlers.EventIndex;
 import me.touchie771.minecraftLuaScripting.eventHandlers.EventListener;
 import org.bukkit.Bukkit;
+import org.bukkit.event.HandlerList;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
 import org.luaj.vm2.lib.jse.CoerceJavaToLua;
 import org.luaj.vm2.lib.jse.JsePlatform;
 import org.luaj.vm2.lib.OneArgFunction;
@@ -20,18 +29,48 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class ScriptExecutor {
 
-    private static final File scriptsFolder = new File("LuaScripts");
-    private static Globals globals = JsePlatform.standardGlobals();
-    private static EventListener eventListener;
+    private static File scriptsFolder = new File("LuaScripts");
+    private static final Map<String, ScriptRuntime> runtimes = new LinkedHashMap<>();
+    private static ScriptCache scriptCache;
+    private static ScriptWatchdog.Settings watchdogSettings = ScriptWatchdog.Settings.fromConfig(null);
+    private static LuaWorkerPool workerPool;
+    private static TimerWheel timerWheel;
+    private static ScriptFileService scriptFiles;
+    private static KeyValueStore store;
+    private static ScriptWatcher watcher;
+    private static BlockEditQueue blockEdits;
+    private static PlayerIndex playerIndex;
+    private static ScriptMemory memory;
+    private static MetricsExporter metrics;
+    private static ScriptLog scriptLog;
+    private static EventIndex eventIndex;
 
     public static void cleanup(MinecraftLuaScripting plugin) {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+
+        for (ScriptRuntime runtime : runtimes.values()) {
+            closeRuntime(plugin, runtime);
+        }
+        runtimes.clear();
+
+        // Catch anything that was registered outside a tracked runtime.
         try {
             CommandRegister.clearLuaCommands(plugin);
         } catch (Exception e) {
@@ -39,26 +78,113 @@ public class ScriptExecutor {
         }
 
         try {
-            SchedulerApi.cancelAllTasks(plugin);
+            if (timerWheel != null) {
+                timerWheel.cancelAll();
+            }
         } catch (Exception e) {
             plugin.getLogger().warning("Failed to cancel Lua tasks: " + e);
         }
 
+        if (blockEdits != null) {
+            blockEdits.cancelAll();
+            blockEdits = null;
+        }
+
+        try {
+            EventDispatcher.unregisterAll();
+        } catch (Exception e) {
+            plugin.getLogger().warning("Failed to unregister Lua event dispatchers: " + e);
+        }
+
+        if (workerPool != null) {
+            try {
+                workerPool.shutdown();
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to shut down Lua worker pool: " + e);
+            }
+            workerPool = null;
+        }
+
+        if (scriptFiles != null) {
+            try {
+                scriptFiles.shutdown();
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to finish Lua file operations: " + e);
+            }
+            scriptFiles = null;
+        }
+    }
+
+    /**
+     * Cleans up all scripts and closes the script store, flushing its pending writes. Called when the plugin is disabled.
+     */
+    public static void shutdown(MinecraftLuaScripting plugin) {
+        cleanup(plugin);
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+        if (playerIndex != null) {
+            HandlerList.unregisterAll(playerIndex);
+            playerIndex = null;
+        }
+        if (memory != null) {
+            memory.stop();
+            memory = null;
+        }
+        if (metrics != null) {
+            metrics.stop();
+            metrics = null;
+        }
+        if (scriptLog != null) {
+            scriptLog.close();
+            scriptLog = null;
+        }
+    }
+
+    /**
+     * Releases every resource a single script registered: its commands, its scheduled tasks
+     * and its event listeners. Other scripts are left untouched.
+     */
+    private static void closeRuntime(MinecraftLuaScripting plugin, ScriptRuntime runtime) {
+        runtime.markClosed();
+
+        try {
+            CommandRegister.clearLuaCommands(plugin, runtime.getName());
+        } catch (Exception e) {
+            plugin.getLogger().warning("Failed to clear Lua commands of '" + runtime.getName() + "': " + e);
+        }
+
+        try {
+            if (timerWheel != null) {
+                timerWheel.cancelOwner(runtime.getName());
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("Failed to cancel Lua tasks of '" + runtime.getName() + "': " + e);
+        }
+
+        if (blockEdits != null) {
+            blockEdits.cancelOwner(runtime.getName());
+        }
+
         try {
-            if (eventListener != null) {
-                org.bukkit.event.HandlerList.unregisterAll(eventListener);
+            if (runtime.getEventListener() != null) {
+                runtime.getEventListener().unregisterAll();
             }
         } catch (Exception e) {
-            plugin.getLogger().warning("Failed to unregister Lua event listeners: " + e);
+            plugin.getLogger().warning("Failed to unregister Lua event listeners of '" + runtime.getName() + "': " + e);
         } finally {
-            eventListener = null;
+            runtime.setEventListener(null);
         }
 
-        globals = JsePlatform.standardGlobals();
+        if (memory != null) {
+            memory.retire(runtime);
+        }
     }
 
     public static void reloadAll(MinecraftLuaScripting plugin) {
         cleanup(plugin);
+        plugin.reloadConfig();
         if (!setup(plugin)) {
             return;
         }
@@ -67,7 +193,31 @@ public class ScriptExecutor {
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public static boolean setup(MinecraftLuaScripting plugin) {
-        loadApi(plugin);
+        setupCache(plugin);
+        if (timerWheel == null) {
+            timerWheel = new TimerWheel(plugin);
+        }
+        if (playerIndex == null) {
+            playerIndex = new PlayerIndex();
+            Bukkit.getPluginManager().registerEvents(playerIndex, plugin);
+            playerIndex.rebuild();
+        }
+        if (eventIndex == null) {
+            eventIndex = EventIndex.build(plugin.getLogger(), Bukkit.getPluginManager().getPlugins());
+        }
+        ScriptMemory.Settings memorySettings = ScriptMemory.Settings.fromConfig(plugin.getConfig().getConfigurationSection("memory"));
+        if (memory == null) {
+            memory = new ScriptMemory(plugin, memorySettings);
+        } else {
+            memory.setSettings(memorySettings);
+        }
+        if (metrics == null) {
+            MetricsExporter.Settings metricsSettings = MetricsExporter.Settings.fromConfig(plugin.getConfig().getConfigurationSection("metrics"));
+            if (metricsSettings.enabled()) {
+                metrics = MetricsExporter.start(plugin, metricsSettings);
+            }
+        }
+        watchdogSettings = ScriptWatchdog.Settings.fromConfig(plugin.getConfig().getConfigurationSection("watchdog"));
 
         if (!scriptsFolder.exists()) {
             if (scriptsFolder.mkdirs()) {
@@ -81,6 +231,43 @@ public class ScriptExecutor {
         }
 
         saveExampleScripts(plugin);
+
+        ScriptLog.Settings logSettings = ScriptLog.Settings.fromConfig(plugin.getConfig().getConfigurationSection("logging"));
+        if (scriptLog == null) {
+            scriptLog = new ScriptLog(plugin.getLogger(), new File(plugin.getDataFolder(), "logs").toPath(), logSettings);
+        } else {
+            scriptLog.setSettings(logSettings);
+        }
+        if (workerPool == null) {
+            workerPool = new LuaWorkerPool(plugin, new File(scriptsFolder, "workers"), scriptCache, scriptLog,
+                    LuaWorkerPool.Settings.fromConfig(plugin.getConfig().getConfigurationSection("workers")));
+        }
+        if (blockEdits == null) {
+            blockEdits = new BlockEditQueue(plugin,
+                    BlockEditQueue.Settings.fromConfig(plugin.getConfig().getConfigurationSection("blocks")));
+        }
+        if (scriptFiles == null) {
+            scriptFiles = new ScriptFileService(plugin, new File(scriptsFolder, "data").toPath());
+        }
+        KeyValueStore.Settings storeSettings = KeyValueStore.Settings.fromConfig(plugin.getConfig().getConfigurationSection("store"));
+        if (store == null) {
+            try {
+                store = KeyValueStore.open(new File(plugin.getDataFolder(), "store").toPath(), plugin.getLogger(), storeSettings);
+            } catch (IOException e) {
+                plugin.getLogger().severe("Failed to open the script store, store functions are disabled: " + e);
+            }
+        } else {
+            store.setSettings(storeSettings);
+        }
+
+        ScriptWatcher.Settings watcherSettings = ScriptWatcher.Settings.fromConfig(plugin.getConfig().getConfigurationSection("watcher"));
+        if (watcherSettings.enabled() && watcher == null) {
+            try {
+                watcher = ScriptWatcher.start(plugin, scriptsFolder, scriptCache, watcherSettings.debounceMillis());
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to watch the scripts folder, hot reload is disabled: " + e);
+            }
+        }
         return true;
     }
 
@@ -97,14 +284,121 @@ public class ScriptExecutor {
         }
 
         Arrays.sort(scripts, Comparator.comparing(File::getName, String.CASE_INSENSITIVE_ORDER));
+        if (scripts.length == 0) {
+            return;
+        }
 
-        for (File script : scripts) {
-            try {
-                globals.loadfile(script.toPath().toString()).call();
-            } catch (Exception e) {
-                plugin.getLogger().severe("Failed to execute Lua script '" + script.getName() + "': " + e);
+        // Read and compile every script in parallel, then run them here in name order.
+        // Each chunk runs as soon as it and every chunk before it are compiled.
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(scripts.length, Runtime.getRuntime().availableProcessors()));
+        long compileNanos = 0;
+        long runNanos = 0;
+        try {
+            List<ForkJoinTask<CompiledScript>> compiled = new ArrayList<>(scripts.length);
+            for (File script : scripts) {
+                compiled.add(pool.submit(() -> compile(script)));
             }
+
+            for (int i = 0; i < scripts.length; i++) {
+                File script = scripts[i];
+                CompiledScript result = compiled.get(i).join();
+                compileNanos += result.compileNanos();
+                if (result.error() != null) {
+                    // Not registered: a script that does not compile has no runtime to list, measure or unload.
+                    plugin.getLogger().severe("Failed to execute Lua script '" + script.getName() + "': " + result.error());
+                    continue;
+                }
+                ScriptRuntime runtime = createRuntime(plugin, script);
+
+                long runStart = System.nanoTime();
+                try {
+                    bind(runtime, result.prototype()).call();
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Failed to execute Lua script '" + script.getName() + "': " + e);
+                }
+                long scriptRunNanos = System.nanoTime() - runStart;
+                runNanos += scriptRunNanos;
+                plugin.getLogger().info(String.format("Loaded %s (compile %.1f ms, run %.1f ms)",
+                        script.getName(), result.compileNanos() / 1e6, scriptRunNanos / 1e6));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        long totalNanos = System.nanoTime() - start;
+        ScriptMetrics.recordReload("all", totalNanos);
+        plugin.getLogger().info(String.format("Loaded %d scripts in %.1f ms (compile %.1f ms across %d threads, run %.1f ms)",
+                scripts.length, totalNanos / 1e6, compileNanos / 1e6, pool.getParallelism(), runNanos / 1e6));
+    }
+
+    private record CompiledScript(Prototype prototype, Exception error, long compileNanos) {
+    }
+
+    /**
+     * Reads and compiles a script through the cache. Runs on the startup compile pool.
+     */
+    private static CompiledScript compile(File script) {
+        long start = System.nanoTime();
+        try {
+            Prototype prototype = scriptCache.load(script, chunkName(script));
+            return new CompiledScript(prototype, null, System.nanoTime() - start);
+        } catch (IOException | RuntimeException e) {
+            return new CompiledScript(null, e, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Creates a fresh runtime with its own globals and API bindings and registers it under the script's file name.
+     */
+    private static ScriptRuntime createRuntime(MinecraftLuaScripting plugin, File script) {
+        ScriptRuntime runtime = new ScriptRuntime(script.getName(), script, JsePlatform.standardGlobals());
+        if (watchdogSettings.guards(runtime.getName())) {
+            installWatchdog(plugin, runtime);
+        }
+        loadApi(plugin, runtime);
+        runtimes.put(runtime.getName(), runtime);
+        return runtime;
+    }
+
+    /**
+     * Installs the budget-enforcing debug hook without exposing the debug library to the script.
+     */
+    private static void installWatchdog(MinecraftLuaScripting plugin, ScriptRuntime runtime) {
+        Globals globals = runtime.getGlobals();
+        ScriptWatchdog watchdog = new ScriptWatchdog(runtime.getName(), plugin.getLogger(), watchdogSettings);
+        globals.load(watchdog);
+        globals.set("debug", LuaValue.NIL);
+        globals.get("package").get("loaded").set("debug", LuaValue.NIL);
+        runtime.setWatchdog(watchdog);
+    }
+
+    private static void setupCache(MinecraftLuaScripting plugin) {
+        if (scriptCache == null) {
+            scriptCache = new ScriptCache(plugin.getLogger(), plugin.getDescription().getVersion());
         }
+        boolean persist = plugin.getConfig().getBoolean("cache.persist", true);
+        scriptCache.setDiskFolder(persist ? new File(plugin.getDataFolder(), "cache") : null);
+    }
+
+    /**
+     * Loads a script through the compiled-chunk cache, compiling it only if it changed.
+     */
+    private static LuaValue loadScript(ScriptRuntime runtime) throws IOException {
+        return bind(runtime, scriptCache.load(runtime.getFile(), chunkName(runtime.getFile())));
+    }
+
+    private static LuaValue bind(ScriptRuntime runtime, Prototype prototype) {
+        Globals globals = runtime.getGlobals();
+        runtime.setPrototype(prototype);
+        return globals.loader.load(prototype, chunkName(runtime.getFile()), globals);
+    }
+
+    /**
+     * The chunk name scripts are compiled under, so Lua errors point at the script file.
+     */
+    static String chunkName(File script) {
+        return "@" + script.toPath();
     }
 
     private static final class JavaClassBinder extends OneArgFunction {
@@ -120,7 +414,7 @@ public class ScriptExecutor {
 
             try {
                 Class<?> clazz = Class.forName(className);
-                LuaValue coerced = CoerceJavaToLua.coerce(clazz);
+                LuaValue coerced = StaticBinding.of(clazz);
                 cache.put(className, coerced);
                 return coerced;
             } catch (ClassNotFoundException e) {
@@ -145,74 +439,159 @@ public class ScriptExecutor {
         }
     }
 
-    private static void loadApi(MinecraftLuaScripting plugin) {
+    private static void loadApi(MinecraftLuaScripting plugin, ScriptRuntime runtime) {
+        Globals globals = runtime.getGlobals();
+
         // Expose Java Classes (for static access and enums)
-        globals.set("Bukkit", CoerceJavaToLua.coerce(org.bukkit.Bukkit.class));
-        globals.set("Material", CoerceJavaToLua.coerce(org.bukkit.Material.class));
-        globals.set("EntityType", CoerceJavaToLua.coerce(org.bukkit.entity.EntityType.class));
-        globals.set("GameMode", CoerceJavaToLua.coerce(org.bukkit.GameMode.class));
+        globals.set("Bukkit", StaticBinding.of(org.bukkit.Bukkit.class));
+        globals.set("Material", StaticBinding.of(org.bukkit.Material.class));
+        globals.set("EntityType", StaticBinding.of(org.bukkit.entity.EntityType.class));
+        globals.set("GameMode", StaticBinding.of(org.bukkit.GameMode.class));
 
         globals.set("Class", new JavaClassBinder());
         globals.set("plugin", CoerceJavaToLua.coerce(plugin));
 
         // Player API (Factories & Helpers)
-        globals.set("getPlayer", new PlayerApi.GetPlayer());
+        globals.set("getPlayer", new PlayerApi.GetPlayer(playerIndex));
+        globals.set("getPlayerById", new PlayerApi.GetPlayerById(playerIndex));
         globals.set("teleport", new PlayerApi.Teleport()); // Helper for x,y,z
         globals.set("kick", new PlayerApi.Kick()); // Helper for Component text
 
         // Server API (Helpers)
         globals.set("executeAs", new ServerApi.ExecuteAs());
-        globals.set("getOnlinePlayers", new ServerApi.GetOnlinePlayers()); // Returns table of names (easier than Collection)
+        globals.set("getOnlinePlayers", new ServerApi.GetOnlinePlayers(playerIndex)); // Returns table of names (easier than Collection)
+        globals.set("getPlayers", new ServerApi.GetPlayers(playerIndex));
+        globals.set("getPlayersVersion", new ServerApi.GetPlayersVersion(playerIndex));
 
         // World API
         globals.set("getWorld", new WorldApi.GetWorld());
         globals.set("createExplosion", new WorldApi.CreateExplosion()); // Helper for x,y,z
+        globals.set("setBlocks", new WorldApi.SetBlocks(plugin, runtime, blockEdits));
 
         // Entity API
         globals.set("spawnEntity", new EntityApi.SpawnEntity()); // Helper for Location/Type
+        globals.set("getEntitiesNear", new EntityApi.GetEntitiesNear());
+        globals.set("getEntitiesInBox", new EntityApi.GetEntitiesInBox());
 
         // Inventory API
         globals.set("getInventory", new InventoryApi.GetInventory());
         globals.set("addItem", new InventoryApi.AddItem()); // Helper for Material/ItemStack
 
         // Logger API
-        globals.set("info", new LoggerApi.Info(plugin.getLogger()));
-        globals.set("warning", new LoggerApi.Warning(plugin.getLogger()));
-        globals.set("error", new LoggerApi.Error(plugin.getLogger()));
+        ScriptLog.Channel log = scriptLog.channel(runtime.getName());
+        globals.set("info", new LoggerApi.Info(log));
+        globals.set("warning", new LoggerApi.Warning(log));
+        globals.set("error", new LoggerApi.Error(log));
 
         // Event API
-        eventListener = new EventListener(plugin);
+        EventListener eventListener = new EventListener(plugin, runtime, eventIndex);
+        runtime.setEventListener(eventListener);
         globals.set("on", eventListener.new On());
+        globals.set("off", eventListener.new Off());
 
         // Scheduler API
-        globals.set("runLater", new SchedulerApi.RunLater(plugin));
-        globals.set("runRepeating", new SchedulerApi.RunRepeating(plugin));
-        globals.set("runAsync", new SchedulerApi.RunAsync(plugin));
-        globals.set("runAsyncLater", new SchedulerApi.RunAsyncLater(plugin));
-        globals.set("cancelTask", new SchedulerApi.CancelTask(plugin));
-        globals.set("cancelAllTasks", new SchedulerApi.CancelAllTasks(plugin));
+        globals.set("runLater", new SchedulerApi.RunLater(plugin, runtime, timerWheel));
+        globals.set("runRepeating", new SchedulerApi.RunRepeating(plugin, runtime, timerWheel));
+        globals.set("runAsync", new SchedulerApi.RunAsync(plugin, runtime, timerWheel));
+        globals.set("runAsyncLater", new SchedulerApi.RunAsyncLater(plugin, runtime, timerWheel));
+        globals.set("cancelTask", new SchedulerApi.CancelTask(plugin, runtime, timerWheel));
+        globals.set("cancelAllTasks", new SchedulerApi.CancelAllTasks(plugin, runtime, timerWheel));
+        CoroutineApi coroutines = new CoroutineApi(plugin, runtime, timerWheel,
+                Math.max(0, plugin.getConfig().getInt("coroutines.max-per-script", 256)));
+        CoroutineApi.Wait wait = coroutines.new Wait();
+        globals.set("spawn", coroutines.new Spawn());
+        globals.set("wait", wait);
+        globals.set("sleep", wait);
+        globals.set("waitUntil", coroutines.new WaitUntil());
+
+        // File API
+        globals.set("readFile", new FileApi.ReadFile(plugin, runtime, scriptFiles));
+        globals.set("writeFile", new FileApi.WriteFile(plugin, runtime, scriptFiles));
+        globals.set("appendFile", new FileApi.AppendFile(plugin, runtime, scriptFiles));
+        globals.set("listDir", new FileApi.ListDir(plugin, runtime, scriptFiles));
+
+        // Store API
+        globals.set("store", StoreApi.create(runtime, store));
+
+        // Worker API
+        globals.set("runWorker", new WorkerApi.RunWorker(runtime, workerPool));
 
         // Command API
-        globals.set("registerCommand", new CommandRegister(plugin).new Register());
+        globals.set("registerCommand", new CommandRegister(plugin).new Register(runtime));
     }
 
     public static File getScriptsFolder() {
         return scriptsFolder;
     }
 
+    /**
+     * Points the executor at a different scripts folder, used by the benchmarks.
+     */
+    static void setScriptsFolder(File folder) {
+        scriptsFolder = folder;
+    }
+
+    public static ScriptCache getScriptCache() {
+        return scriptCache;
+    }
+
+    public static LuaWorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
+    public static TimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
+    public static BlockEditQueue getBlockEdits() {
+        return blockEdits;
+    }
+
+    public static PlayerIndex getPlayerIndex() {
+        return playerIndex;
+    }
+
+    public static ScriptMemory getMemory() {
+        return memory;
+    }
+
+    public static ScriptLog getScriptLog() {
+        return scriptLog;
+    }
+
+    public static KeyValueStore getStore() {
+        return store;
+    }
+
+    /**
+     * Returns the runtime of a loaded script.
+     *
+     * @param scriptName The name of the script file, with or without the .lua extension
+     * @return The runtime, or null if the script is not loaded
+     */
+    public static ScriptRuntime getRuntime(String scriptName) {
+        return runtimes.get(normalizeScriptName(scriptName));
+    }
+
+    public static Collection<ScriptRuntime> getRuntimes() {
+        return Collections.unmodifiableCollection(runtimes.values());
+    }
+
+    private static String normalizeScriptName(String scriptName) {
+        return scriptName.endsWith(".lua") ? scriptName : scriptName + ".lua";
+    }
+
     /**
      * Executes a single Lua script file.
-     * Note: This does not clean up any previously registered resources from this script.
-     * Use reloadScript for proper cleanup and reload.
+     * If the script is already loaded it runs again inside its existing runtime, without
+     * cleaning up the resources it registered before. Use reloadScript for proper cleanup and reload.
      *
      * @param plugin The plugin instance
      * @param scriptName The name of the script file (must end with .lua)
      * @return true if the script executed successfully, false otherwise
      */
     public static boolean runScript(MinecraftLuaScripting plugin, String scriptName) {
-        if (!scriptName.endsWith(".lua")) {
-            scriptName += ".lua";
-        }
+        scriptName = normalizeScriptName(scriptName);
 
         File scriptFile = new File(scriptsFolder, scriptName);
         
@@ -221,8 +600,13 @@ public class ScriptExecutor {
             return false;
         }
 
+        ScriptRuntime runtime = runtimes.get(scriptName);
+        if (runtime == null) {
+            runtime = createRuntime(plugin, scriptFile);
+        }
+
         try {
-            globals.loadfile(scriptFile.toPath().toString()).call();
+            loadScript(runtime).call();
             plugin.getLogger().info("Successfully executed script: " + scriptName);
             return true;
         } catch (Exception e) {
@@ -232,17 +616,15 @@ public class ScriptExecutor {
     }
 
     /**
-     * Reloads a single script by cleaning up all resources and then re-executing only the target script.
-     * This is a simple implementation that cleans up globally and only runs the specific script.
+     * Reloads a single script: releases the commands, tasks and event listeners registered by
+     * its runtime, then re-executes it in a fresh runtime. Other scripts keep running untouched.
      *
      * @param plugin The plugin instance
      * @param scriptName The name of the script file (must end with .lua)
      * @return true if the script reloaded successfully, false otherwise
      */
     public static boolean reloadScript(MinecraftLuaScripting plugin, String scriptName) {
-        if (!scriptName.endsWith(".lua")) {
-            scriptName += ".lua";
-        }
+        scriptName = normalizeScriptName(scriptName);
 
         File scriptFile = new File(scriptsFolder, scriptName);
         
@@ -251,22 +633,77 @@ public class ScriptExecutor {
             return false;
         }
 
-        // Clean up all resources globally
-        cleanup(plugin);
-        
-        // Re-setup the API
-        if (!setup(plugin)) {
-            return false;
+        // Clean up only this script's resources
+        long start = System.nanoTime();
+        ScriptRuntime previous = runtimes.remove(scriptName);
+        if (previous != null) {
+            closeRuntime(plugin, previous);
         }
 
-        // Execute only the target script
+        ScriptRuntime runtime = createRuntime(plugin, scriptFile);
         try {
-            globals.loadfile(scriptFile.toPath().toString()).call();
+            loadScript(runtime).call();
             plugin.getLogger().info("Successfully reloaded script: " + scriptName);
             return true;
         } catch (Exception e) {
             plugin.getLogger().severe("Failed to reload Lua script '" + scriptName + "': " + e);
             return false;
+        } finally {
+            ScriptMetrics.recordReload("script", System.nanoTime() - start);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Replaces a running script with an already compiled version of it, used by the
+     * {@link ScriptWatcher}. Must be called on the server thread.
+     * Nothing happens if the runtime already runs exactly this prototype.
+     *
+     * @param plugin The plugin instance
+     * @param scriptFile The script file
+     * @param prototype The compiled chunk of the script file
+     * @return true if the new version executed successfully, false otherwise
+     */
+    static boolean swapScript(MinecraftLuaScripting plugin, File scriptFile, Prototype prototype) {
+        String scriptName = scriptFile.getName();
+        ScriptRuntime previous = runtimes.get(scriptName);
+        if (previous != null && previous.getPrototype() == prototype) {
+            return true;
+        }
+        long start = System.nanoTime();
+        if (previous != null) {
+            runtimes.remove(scriptName);
+            closeRuntime(plugin, previous);
+        }
+
+        ScriptRuntime runtime = createRuntime(plugin, scriptFile);
+        try {
+            bind(runtime, prototype).call();
+            plugin.getLogger().info((previous == null ? "Loaded new script: " : "Hot-reloaded script: ") + scriptName);
+            return true;
+        } catch (Exception e) {
+            plugin.getLogger().severe("Failed to execute Lua script '" + scriptName + "': " + e);
+            return false;
+        } finally {
+            ScriptMetrics.recordReload("hot", System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Stops a script and releases everything it registered, e.g. after its file was deleted.
+     *
+     * @param plugin The plugin instance
+     * @param scriptName The name of the script file, with or without the .lua extension
+     * @return true if the script was loaded, false otherwise
+     */
+    public static boolean unloadScript(MinecraftLuaScripting plugin, String scriptName) {
+        scriptName = normalizeScriptName(scriptName);
+        ScriptRuntime runtime = runtimes.remove(scriptName);
+        if (runtime == null) {
+            return false;
+        }
+        closeRuntime(plugin, runtime);
+        scriptCache.invalidate(runtime.getFile());
+        plugin.getLogger().info("Unloaded script: " + scriptName);
+        return true;
+    }
+}
@@ -0,0 +1,258 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.bukkit.Bukkit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Runs script file I/O off the server thread, sandboxed to {@code LuaScripts/data/<script>/}.
+ * Operations on the same file run in submission order; writes and appends that are still queued
+ * are coalesced, so a burst of saves to one file costs a single disk write. Results are delivered
+ * on the server thread.
+ */
+public final class ScriptFileService {
+
+    private final MinecraftLuaScripting plugin;
+    private final Path dataRoot;
+    private final ExecutorService executor;
+    private final Map<Path, Deque<Operation>> queues = new HashMap<>();
+
+    ScriptFileService(MinecraftLuaScripting plugin, Path dataRoot) {
+        this.plugin = plugin;
+        this.dataRoot = dataRoot.toAbsolutePath().normalize();
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "LuaFileIO-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Receives the outcome of an operation on the server thread.
+     */
+    @FunctionalInterface
+    public interface Completion {
+        /**
+         * @param result The file content for reads, the sorted entry names for listings, or null
+         * @param error The error message, or null on success
+         */
+        void complete(Object result, String error);
+    }
+
+    private enum Kind {READ, WRITE, APPEND, LIST}
+
+    private static final class Operation {
+        final Kind kind;
+        final StringBuilder data;
+        final List<Completion> completions = new ArrayList<>(1);
+
+        Operation(Kind kind, String data, Completion completion) {
+            this.kind = kind;
+            this.data = data == null ? null : new StringBuilder(data);
+            this.completions.add(completion);
+        }
+    }
+
+    /**
+     * Resolves a script-relative path inside the script's data folder.
+     *
+     * @throws IllegalArgumentException If the path escapes the sandbox
+     */
+    public Path resolve(String scriptName, String relativePath) {
+        Path base = scriptFolder(scriptName);
+        Path path = base.resolve(relativePath).normalize();
+        if (!path.startsWith(base)) {
+            throw new IllegalArgumentException("path escapes the script data folder: " + relativePath);
+        }
+        return path;
+    }
+
+    private Path scriptFolder(String scriptName) {
+        String folder = scriptName.endsWith(".lua") ? scriptName.substring(0, scriptName.length() - 4) : scriptName;
+        return dataRoot.resolve(folder);
+    }
+
+    public void read(ScriptRuntime runtime, Path path, Completion completion) {
+        submit(runtime, path, new Operation(Kind.READ, null, completion));
+    }
+
+    public void write(ScriptRuntime runtime, Path path, String data, Completion completion) {
+        submit(runtime, path, new Operation(Kind.WRITE, data, completion));
+    }
+
+    public void append(ScriptRuntime runtime, Path path, String data, Completion completion) {
+        submit(runtime, path, new Operation(Kind.APPEND, data, completion));
+    }
+
+    public void list(ScriptRuntime runtime, Path path, Completion completion) {
+        submit(runtime, path, new Operation(Kind.LIST, null, completion));
+    }
+
+    private void submit(ScriptRuntime runtime, Path path, Operation operation) {
+        boolean schedule;
+        synchronized (queues) {
+            Deque<Operation> queue = queues.get(path);
+            schedule = queue == null;
+            if (schedule) {
+                queue = new ArrayDeque<>();
+                queues.put(path, queue);
+            }
+            enqueue(queue, operation);
+        }
+        if (schedule) {
+            executor.execute(() -> drain(runtime, path));
+        }
+    }
+
+    /**
+     * Adds an operation, merging it into queued writes where the outcome on disk is the same.
+     */
+    private static void enqueue(Deque<Operation> queue, Operation operation) {
+        Operation last = queue.peekLast();
+        if (operation.kind == Kind.APPEND && last != null && (last.kind == Kind.WRITE || last.kind == Kind.APPEND)) {
+            last.data.append(operation.data);
+            last.completions.addAll(operation.completions);
+            return;
+        }
+        if (operation.kind == Kind.WRITE) {
+            // A write replaces the file, so queued writes and appends after the last read are redundant.
+            Iterator<Operation> pending = queue.descendingIterator();
+            while (pending.hasNext()) {
+                Operation previous = pending.next();
+                if (previous.kind != Kind.WRITE && previous.kind != Kind.APPEND) {
+                    break;
+                }
+                operation.completions.addAll(0, previous.completions);
+                pending.remove();
+            }
+        }
+        queue.addLast(operation);
+    }
+
+    private void drain(ScriptRuntime runtime, Path path) {
+        while (true) {
+            Operation operation;
+            synchronized (queues) {
+                Deque<Operation> queue = queues.get(path);
+                operation = queue.pollFirst();
+                if (operation == null) {
+                    queues.remove(path);
+                    return;
+                }
+            }
+
+            Object result = null;
+            String error = null;
+            try {
+                result = perform(runtime.getName(), path, operation);
+            } catch (NoSuchFileException e) {
+                error = "no such file: " + dataRoot.relativize(path);
+            } catch (IOException | RuntimeException e) {
+                error = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+
+            Object finalResult = result;
+            String finalError = error;
+            try {
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    for (Completion completion : operation.completions) {
+                        completion.complete(finalResult, finalError);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // The plugin is being disabled; the operation itself has completed.
+            }
+        }
+    }
+
+    private Object perform(String scriptName, Path path, Operation operation) throws IOException {
+        Path base = scriptFolder(scriptName);
+        Files.createDirectories(base);
+        checkRealPath(base, operation.kind == Kind.LIST ? path : path.getParent());
+        // The file itself may be a link out of the sandbox too.
+        checkRealPath(base, path);
+
+        switch (operation.kind) {
+            case READ -> {
+                // No links, so the file cannot be swapped for one after the check.
+                try (InputStream in = Files.newInputStream(path, LinkOption.NOFOLLOW_LINKS)) {
+                    return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+            case WRITE -> {
+                Files.createDirectories(path.getParent());
+                Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+                try {
+                    Files.writeString(temp, operation.data, StandardCharsets.UTF_8);
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                return null;
+            }
+            case APPEND -> {
+                Files.createDirectories(path.getParent());
+                Files.writeString(path, operation.data, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND, LinkOption.NOFOLLOW_LINKS);
+                return null;
+            }
+            case LIST -> {
+                try (Stream<Path> entries = Files.list(path)) {
+                    return entries
+                            .map(entry -> entry.getFileName().toString() + (Files.isDirectory(entry) ? "/" : ""))
+                            .sorted()
+                            .toList();
+                }
+            }
+        }
+        throw new IllegalStateException("Unknown file operation: " + operation.kind);
+    }
+
+    /**
+     * Rejects paths that leave the sandbox through symbolic links.
+     */
+    private static void checkRealPath(Path base, Path path) throws IOException {
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        if (!path.toRealPath().startsWith(base.toRealPath())) {
+            throw new IOException("path escapes the script data folder: " + base.relativize(path));
+        }
+    }
+
+    /**
+     * Finishes queued operations, waiting a few seconds so pending writes reach the disk.
+     */
+    void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Lua file operations did not finish in time; some writes may be lost");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The log of Lua scripts. {@code info}, {@code warning} and {@code error} calls only put a record into a bounded
+ * buffer; a background thread writes them to the console and, optionally, as JSON lines to a rotating file.
+ * Each script has a rate limit, and messages over it are dropped and counted instead of flooding the console;
+ * the count is reported with the script's next message, or by the background thread within a second.
+ * When the buffer is full, new messages are dropped and reported in bulk.
+ */
+public final class ScriptLog {
+
+    private final Logger logger;
+    private volatile Settings settings;
+    private final Path logFile;
+    private final BlockingQueue<Record> buffer;
+    private final Thread drainer;
+    private final AtomicLong overflowed = new AtomicLong();
+    private final LongAdder totalOverflowed = new LongAdder();
+    private final LongAdder totalRateLimited = new LongAdder();
+    // Channels with dropped messages that nothing has reported yet.
+    private final Set<Channel> dropping = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    // Owned by the drainer thread.
+    private OutputStream file;
+    private long fileBytes;
+    private long droppedReportedAt = System.nanoTime();
+
+    private record Record(String scriptName, Level level, long timestamp, String message, long dropped) {
+    }
+
+    ScriptLog(Logger logger, Path folder, Settings settings) {
+        this.logger = logger;
+        this.settings = settings;
+        this.logFile = folder.resolve("scripts.log");
+        this.buffer = new ArrayBlockingQueue<>(settings.bufferSize());
+        this.drainer = new Thread(this::runDrainer, "LuaScriptLogger");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * @return The log channel of a script, with its own rate limit
+     */
+    public Channel channel(String scriptName) {
+        return new Channel(scriptName);
+    }
+
+    /**
+     * The log of one script. Thread-safe, so worker threads and async tasks can log too.
+     */
+    public final class Channel {
+        private final String scriptName;
+        private double tokens = settings.burst();
+        private long refilledAt = System.nanoTime();
+        private long dropped;
+
+        private Channel(String scriptName) {
+            this.scriptName = scriptName;
+        }
+
+        /**
+         * @return The messages dropped since the last report, now counted as reported
+         */
+        private synchronized long takeDropped() {
+            long count = dropped;
+            dropped = 0;
+            dropping.remove(this);
+            return count;
+        }
+
+        public void log(Level level, String message) {
+            long suppressed;
+            synchronized (this) {
+                Settings current = settings;
+                if (current.messagesPerSecond() > 0) {
+                    long now = System.nanoTime();
+                    tokens = Math.min(current.burst(), tokens + (now - refilledAt) * current.messagesPerSecond() / 1e9);
+                    refilledAt = now;
+                    if (tokens < 1) {
+                        if (dropped++ == 0) {
+                            dropping.add(this);
+                        }
+                        totalRateLimited.increment();
+                        return;
+                    }
+                    tokens -= 1;
+                }
+                suppressed = dropped;
+                if (suppressed > 0) {
+                    dropped = 0;
+                    dropping.remove(this);
+                }
+            }
+
+            Record record = new Record(scriptName, level, System.currentTimeMillis(), message, suppressed);
+            if (closed) {
+                // Shutting down: nobody drains the buffer any more.
+                writeConsole(record);
+            } else if (!buffer.offer(record)) {
+                overflowed.incrementAndGet();
+                totalOverflowed.increment();
+            }
+        }
+    }
+
+    private void runDrainer() {
+        List<Record> batch = new ArrayList<>();
+        while (!closed || !buffer.isEmpty()) {
+            Record first;
+            try {
+                first = buffer.poll(250, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (first != null) {
+                batch.add(first);
+                buffer.drainTo(batch);
+                for (Record record : batch) {
+                    write(record);
+                }
+                batch.clear();
+            }
+            if (file != null && !settings.fileEnabled()) {
+                // The file sink was turned off by a reload.
+                closeFile(null);
+            }
+            // Quiet for a moment, or busy for a second: report drops no later message has reported.
+            if (first == null || System.nanoTime() - droppedReportedAt >= TimeUnit.SECONDS.toNanos(1)) {
+                reportDropped();
+            }
+
+            long lost = overflowed.getAndSet(0);
+            if (lost > 0) {
+                logger.warning("Lua script log buffer was full, dropped " + lost + " messages");
+            }
+            if (file != null) {
+                try {
+                    file.flush();
+                } catch (IOException e) {
+                    closeFile("Failed to write Lua script log file: " + e);
+                }
+            }
+        }
+        reportDropped();
+        closeFile(null);
+    }
+
+    private void write(Record record) {
+        writeConsole(record);
+        if (settings.fileEnabled()) {
+            writeFile(record);
+        }
+    }
+
+    /**
+     * Reports messages dropped by scripts that have not logged anything since, e.g. after a burst ended.
+     */
+    private void reportDropped() {
+        droppedReportedAt = System.nanoTime();
+        if (dropping.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Channel channel : dropping.toArray(new Channel[0])) {
+            long count = channel.takeDropped();
+            if (count > 0) {
+                write(new Record(channel.scriptName, Level.WARNING, now, "Rate limit: dropped " + count + " messages", 0));
+            }
+        }
+    }
+
+    private void writeConsole(Record record) {
+        if (record.dropped() > 0) {
+            logger.warning("[" + record.scriptName() + "] Rate limit: dropped " + record.dropped() + " messages");
+        }
+        logger.log(record.level(), "[" + record.scriptName() + "] " + record.message());
+    }
+
+    private void writeFile(Record record) {
+        StringBuilder line = new StringBuilder(96 + record.message().length());
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(record.timestamp()))
+                .append("\",\"script\":");
+        appendJson(line, record.scriptName());
+        line.append(",\"level\":\"").append(levelName(record.level())).append("\",\"message\":");
+        appendJson(line, record.message());
+        if (record.dropped() > 0) {
+            line.append(",\"dropped\":").append(record.dropped());
+        }
+        line.append("}\n");
+
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            if (file != null && fileBytes + bytes.length > settings.fileMaxBytes()) {
+                file.close();
+                file = null;
+                rotate();
+            }
+            if (file == null) {
+                Files.createDirectories(logFile.getParent());
+                file = new BufferedOutputStream(Files.newOutputStream(logFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+                fileBytes = Files.size(logFile);
+            }
+            file.write(bytes);
+            fileBytes += bytes.length;
+        } catch (IOException e) {
+            closeFile("Failed to write Lua script log file: " + e);
+        }
+    }
+
+    /**
+     * Shifts scripts.log to scripts.log.1, scripts.log.1 to scripts.log.2 and so on, dropping the oldest.
+     */
+    private void rotate() throws IOException {
+        Path oldest = logFile.resolveSibling(logFile.getFileName() + "." + settings.fileMaxFiles());
+        Files.deleteIfExists(oldest);
+        for (int i = settings.fileMaxFiles() - 1; i >= 1; i--) {
+            Path from = logFile.resolveSibling(logFile.getFileName() + "." + i);
+            if (Files.exists(from)) {
+                Files.move(from, logFile.resolveSibling(logFile.getFileName() + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (Files.exists(logFile)) {
+            Files.move(logFile, logFile.resolveSibling(logFile.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void closeFile(String error) {
+        if (error != null) {
+            logger.warning(error);
+        }
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                logger.warning("Failed to close Lua script log file: " + e);
+            }
+            file = null;
+        }
+    }
+
+    private static String levelName(Level level) {
+        if (level == Level.SEVERE) {
+            return "ERROR";
+        }
+        return level == Level.WARNING ? "WARNING" : "INFO";
+    }
+
+    private static void appendJson(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Applies new settings, e.g. after the config was reloaded. The buffer keeps its size until a restart.
+     */
+    void setSettings(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Stops the background thread after it has written everything that is buffered.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getBuffered() {
+        return buffer.size();
+    }
+
+    public long getRateLimited() {
+        return totalRateLimited.sum();
+    }
+
+    public long getOverflowed() {
+        return totalOverflowed.sum();
+    }
+
+    /**
+     * Script log configuration, read from the {@code logging} section of config.yml.
+     *
+     * @param bufferSize Messages that may wait for the background thread before new ones are dropped
+     * @param messagesPerSecond Messages a script may log per second on average, 0 for unlimited
+     * @param burst Messages a script may log at once before the rate limit applies
+     * @param fileEnabled Whether messages are also written as JSON lines to logs/scripts.log
+     * @param fileMaxBytes Size at which the log file is rotated
+     * @param fileMaxFiles Rotated files kept besides the current one
+     */
+    public record Settings(int bufferSize, double messagesPerSecond, int burst,
+                           boolean fileEnabled, long fileMaxBytes, int fileMaxFiles) {
+
+        public static Settings fromConfig(ConfigurationSection section) {
+            if (section == null) {
+                return new Settings(8192, 20.0, 100, false, 10_485_760L, 5);
+            }
+            return new Settings(
+                    Math.max(16, section.getInt("buffer-size", 8192)),
+                    Math.max(0.0, section.getDouble("messages-per-second", 20.0)),
+                    Math.max(1, section.getInt("burst", 100)),
+                    section.getBoolean("file.enabled", false),
+                    Math.max(1024L, section.getLong("file.max-bytes", 10_485_760L)),
+                    Math.max(1, section.getInt("file.max-files", 5)));
+        }
+    }
+}
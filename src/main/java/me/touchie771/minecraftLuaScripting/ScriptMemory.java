@@ -0,0 +1,317 @@
+package me.touchie771.minecraftLuaScripting;
+
+import me.touchie771.minecraftLuaScripting.bindings.ReadOnlyTable;
+import me.touchie771.minecraftLuaScripting.eventHandlers.EventListener;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.scheduler.BukkitTask;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.UpValue;
+import org.luaj.vm2.Varargs;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Memory accounting for scripts. {@link #estimate(ScriptRuntime)} walks what a loaded script can reach and
+ * estimates the heap its tables, closures, strings and code take up. Runtimes discarded by a reload or unload
+ * are tracked through weak references, and one that is still reachable long after it was discarded, and after
+ * at least one old-generation or full collection, is reported as a likely leak, e.g. a listener, task or command
+ * that kept a closure of the old script alive. Until then it may simply not have been collected yet.
+ * Only used on the server thread.
+ */
+public final class ScriptMemory {
+
+    // Stops the walk of a pathological script instead of stalling the server thread.
+    private static final int MAX_VALUES = 1_000_000;
+
+    // Rough sizes with compressed references; good enough to compare scripts and spot growth.
+    private static final int TABLE_BYTES = 56;
+    private static final int ARRAY_SLOT_BYTES = 4;
+    private static final int HASH_SLOT_BYTES = 36;
+    private static final int CLOSURE_BYTES = 24;
+    private static final int UPVALUE_BYTES = 28;
+    private static final int STRING_BYTES = 48;
+    private static final int PROTOTYPE_BYTES = 96;
+
+    private final MinecraftLuaScripting plugin;
+    private Settings settings;
+    private final List<Retired> retired = new ArrayList<>();
+    private BukkitTask checker;
+
+    ScriptMemory(MinecraftLuaScripting plugin, Settings settings) {
+        this.plugin = plugin;
+        this.settings = settings;
+    }
+
+    /**
+     * Estimates the memory held by a script: everything reachable from its globals and its event handlers.
+     * Values shared by all scripts, such as the Bukkit class tables, are not counted.
+     */
+    public static Usage estimate(ScriptRuntime runtime) {
+        Walk walk = new Walk();
+        walk.push(runtime.getGlobals());
+        EventListener listener = runtime.getEventListener();
+        if (listener != null) {
+            for (LuaValue callback : listener.getCallbacks()) {
+                walk.push(callback);
+            }
+        }
+        walk.run();
+        return new Usage(runtime.getName(), walk.tables, walk.tableBytes, walk.closures, walk.closureBytes,
+                walk.strings, walk.stringBytes, walk.codeBytes, walk.truncated);
+    }
+
+    /**
+     * Starts watching a runtime that was just closed. It is expected to become unreachable soon.
+     */
+    void retire(ScriptRuntime runtime) {
+        retired.add(new Retired(runtime));
+        if (checker == null && plugin.isEnabled()) {
+            long period = settings.checkIntervalSeconds() * 20L;
+            checker = Bukkit.getScheduler().runTaskTimer(plugin, this::check, period, period);
+        }
+    }
+
+    private void check() {
+        long now = System.currentTimeMillis();
+        long oldCollections = oldCollections();
+        Iterator<Retired> it = retired.iterator();
+        while (it.hasNext()) {
+            Retired entry = it.next();
+            if (!entry.isAlive()) {
+                it.remove();
+                continue;
+            }
+            long age = (now - entry.retiredAt) / 1000;
+            // Runtimes loaded long ago sit in the old generation, which young collections never look at.
+            if (!entry.reported && age >= settings.leakWarningSeconds() && oldCollections > entry.oldCollections) {
+                entry.reported = true;
+                plugin.getLogger().warning("The runtime of Lua script '" + entry.scriptName + "' discarded " + age
+                        + " s ago is still reachable after a full garbage collection. Something outside the script, such as"
+                        + " a listener, task or command that was not released, still references it. See /luascript memory.");
+            }
+        }
+        if (retired.isEmpty()) {
+            checker.cancel();
+            checker = null;
+        }
+    }
+
+    /**
+     * @return Collections so far that covered the old generation: full and old-generation collections, and
+     *         whole-heap cycles of collectors without generations
+     */
+    private static long oldCollections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String name = collector.getName();
+            if (name.contains("Old") || name.contains("MarkSweep") || name.contains("Major")
+                    || name.equals("ZGC Cycles") || name.equals("Shenandoah Cycles") || name.equals("G1 Concurrent GC")) {
+                count += Math.max(0L, collector.getCollectionCount());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Discarded runtimes that have not been garbage collected yet, oldest first
+     */
+    public List<Retained> getRetained() {
+        long now = System.currentTimeMillis();
+        List<Retained> result = new ArrayList<>();
+        retired.removeIf(entry -> !entry.isAlive());
+        for (Retired entry : retired) {
+            result.add(new Retained(entry.scriptName, (now - entry.retiredAt) / 1000, entry.reported));
+        }
+        return result;
+    }
+
+    /**
+     * Applies new settings, e.g. after the config was reloaded. Runtimes already reported stay reported.
+     */
+    void setSettings(Settings settings) {
+        this.settings = settings;
+        if (checker != null) {
+            // Restart the check with the new interval.
+            checker.cancel();
+            checker = null;
+            long period = settings.checkIntervalSeconds() * 20L;
+            if (plugin.isEnabled()) {
+                checker = Bukkit.getScheduler().runTaskTimer(plugin, this::check, period, period);
+            }
+        }
+    }
+
+    void stop() {
+        if (checker != null) {
+            checker.cancel();
+            checker = null;
+        }
+        retired.clear();
+    }
+
+    private static final class Retired {
+        final String scriptName;
+        final long retiredAt = System.currentTimeMillis();
+        final long oldCollections = oldCollections();
+        // Closures of the old script keep its globals alive; API functions and listeners keep the runtime alive.
+        final WeakReference<ScriptRuntime> runtime;
+        final WeakReference<Globals> globals;
+        boolean reported;
+
+        Retired(ScriptRuntime runtime) {
+            this.scriptName = runtime.getName();
+            this.runtime = new WeakReference<>(runtime);
+            this.globals = new WeakReference<>(runtime.getGlobals());
+        }
+
+        boolean isAlive() {
+            return runtime.get() != null || globals.get() != null;
+        }
+    }
+
+    /**
+     * Depth-first walk over tables, closures and their upvalues, visiting each value once.
+     */
+    private static final class Walk {
+        private final ArrayDeque<LuaValue> pending = new ArrayDeque<>();
+        private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        int tables;
+        long tableBytes;
+        int closures;
+        long closureBytes;
+        int strings;
+        long stringBytes;
+        long codeBytes;
+        boolean truncated;
+
+        void push(LuaValue value) {
+            if ((value.istable() || value.isclosure() || value.type() == LuaValue.TSTRING) && seen.add(value)) {
+                if (seen.size() > MAX_VALUES) {
+                    truncated = true;
+                    return;
+                }
+                pending.push(value);
+            }
+        }
+
+        void run() {
+            while (!pending.isEmpty() && !truncated) {
+                LuaValue value = pending.pop();
+                if (value instanceof LuaTable table) {
+                    visit(table);
+                } else if (value instanceof LuaClosure closure) {
+                    visit(closure);
+                } else if (value instanceof LuaString string) {
+                    strings++;
+                    stringBytes += STRING_BYTES + string.m_length;
+                }
+            }
+        }
+
+        private void visit(LuaTable table) {
+            if (table instanceof ReadOnlyTable) {
+                return;
+            }
+            tables++;
+            tableBytes += TABLE_BYTES + (long) table.getArrayLength() * ARRAY_SLOT_BYTES
+                    + (long) table.getHashLength() * HASH_SLOT_BYTES;
+            LuaValue key = LuaValue.NIL;
+            while (true) {
+                Varargs next = table.next(key);
+                key = next.arg1();
+                if (key.isnil()) {
+                    break;
+                }
+                push(key);
+                push(next.arg(2));
+            }
+            LuaValue metatable = table.getmetatable();
+            if (metatable != null) {
+                push(metatable);
+            }
+        }
+
+        private void visit(LuaClosure closure) {
+            closures++;
+            UpValue[] upValues = closure.upValues;
+            closureBytes += CLOSURE_BYTES + (upValues != null ? (long) upValues.length * UPVALUE_BYTES : 0);
+            if (upValues != null) {
+                for (UpValue upValue : upValues) {
+                    if (upValue != null) {
+                        push(upValue.getValue());
+                    }
+                }
+            }
+            visit(closure.p);
+        }
+
+        private void visit(Prototype prototype) {
+            if (prototype == null || !seen.add(prototype)) {
+                return;
+            }
+            codeBytes += PROTOTYPE_BYTES + (long) prototype.code.length * 4
+                    + (prototype.lineinfo != null ? (long) prototype.lineinfo.length * 4 : 0)
+                    + (long) prototype.k.length * 4;
+            for (LuaValue constant : prototype.k) {
+                push(constant);
+            }
+            for (Prototype child : prototype.p) {
+                visit(child);
+            }
+        }
+    }
+
+    /**
+     * Estimated memory of one loaded script.
+     *
+     * @param truncated Whether the walk stopped early because the script holds too many values
+     */
+    public record Usage(String scriptName, int tables, long tableBytes, int closures, long closureBytes,
+                        int strings, long stringBytes, long codeBytes, boolean truncated) {
+
+        public long totalBytes() {
+            return tableBytes + closureBytes + stringBytes + codeBytes;
+        }
+    }
+
+    /**
+     * A discarded runtime that is still reachable.
+     *
+     * @param reported Whether it was already reported as a likely leak; otherwise it may just not be collected yet
+     */
+    public record Retained(String scriptName, long ageSeconds, boolean reported) {
+    }
+
+    /**
+     * Leak tracking configuration, read from the {@code memory} section of config.yml.
+     *
+     * @param leakWarningSeconds How long a discarded runtime may stay reachable before it is reported
+     * @param checkIntervalSeconds How often discarded runtimes are checked
+     */
+    public record Settings(long leakWarningSeconds, long checkIntervalSeconds) {
+
+        public static Settings fromConfig(ConfigurationSection section) {
+            if (section == null) {
+                return new Settings(120L, 30L);
+            }
+            return new Settings(
+                    Math.max(1L, section.getLong("leak-warning-seconds", 120L)),
+                    Math.max(1L, section.getLong("check-interval-seconds", 30L)));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package me.touchie771.minecraftLuaScripting;
+
+import me.touchie771.minecraftLuaScripting.commandHandlers.CommandRegister;
+import me.touchie771.minecraftLuaScripting.eventHandlers.EventDispatcher;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Engine-wide metrics in the Prometheus text exposition format: events dispatched to Lua, callback latency and
+ * errors per script, reload durations, and gauges for scripts, tasks, commands and subscriptions.
+ * Counters and histograms are {@link LongAdder}s updated without locks from any thread; gauges are sampled on
+ * the server thread by {@link #sample()}. While disabled, the hot paths pay a single volatile read.
+ */
+public final class ScriptMetrics {
+
+    private static final double[] CALLBACK_BUCKETS = {0.00001, 0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1};
+    private static final double[] RELOAD_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private static final Map<String, LongAdder> EVENTS = new ConcurrentHashMap<>();
+    private static final Map<String, Callbacks> CALLBACKS = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> RELOADS = new ConcurrentHashMap<>();
+    private static volatile boolean enabled;
+    private static volatile Gauges gauges = new Gauges(0, 0, 0, 0, 0, 0);
+
+    private ScriptMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * @return The dispatch counter of an event class, to be kept by its dispatcher
+     */
+    public static LongAdder events(Class<?> eventClass) {
+        return EVENTS.computeIfAbsent(eventClass.getName(), k -> new LongAdder());
+    }
+
+    /**
+     * @return The callback metrics of a script, kept across reloads of the script
+     */
+    static Callbacks callbacks(String scriptName) {
+        return CALLBACKS.computeIfAbsent(scriptName, k -> new Callbacks());
+    }
+
+    /**
+     * Records how long loading scripts took.
+     *
+     * @param kind {@code all} for a full (re)load, {@code script} for a single reload, {@code hot} for a hot reload
+     */
+    static void recordReload(String kind, long nanos) {
+        if (enabled) {
+            RELOADS.computeIfAbsent(kind, k -> new Histogram(RELOAD_BUCKETS)).record(nanos);
+        }
+    }
+
+    /**
+     * Reads the gauges. Must be called on the server thread.
+     */
+    static void sample() {
+        TimerWheel timers = ScriptExecutor.getTimerWheel();
+        BlockEditQueue blockEdits = ScriptExecutor.getBlockEdits();
+        gauges = new Gauges(
+                ScriptExecutor.getRuntimes().size(),
+                timers != null ? timers.getPending() : 0,
+                CommandRegister.getLuaCommandCount(),
+                EventDispatcher.getSubscriptionCount(),
+                EventDispatcher.getDispatcherCount(),
+                blockEdits != null ? blockEdits.getPendingBlocks() : 0);
+    }
+
+    /**
+     * Writes every metric in the Prometheus text format, version 0.0.4.
+     */
+    public static void write(Appendable out) throws IOException {
+        Gauges current = gauges;
+        gauge(out, "luascript_scripts_loaded", "Lua scripts currently loaded.", current.scripts());
+        gauge(out, "luascript_scheduled_tasks", "Pending runLater/runRepeating/runAsync tasks and parked coroutines.", current.tasks());
+        gauge(out, "luascript_commands", "Commands registered by Lua scripts.", current.commands());
+        gauge(out, "luascript_event_subscriptions", "Lua event listeners registered with on().", current.subscriptions());
+        gauge(out, "luascript_event_dispatchers", "Bukkit registrations held for Lua event listeners.", current.dispatchers());
+        gauge(out, "luascript_block_edits_pending", "Blocks queued by setBlocks and not applied yet.", current.pendingBlocks());
+
+        header(out, "luascript_events_dispatched_total", "Events delivered to Lua listeners, by event class.", "counter");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(EVENTS).entrySet()) {
+            sample(out, "luascript_events_dispatched_total", "event", entry.getKey(), null, entry.getValue().sum());
+        }
+
+        Map<String, Callbacks> callbacks = new TreeMap<>(CALLBACKS);
+        header(out, "luascript_callback_seconds", "Latency of Lua callbacks: event handlers, tasks, commands.", "histogram");
+        for (Map.Entry<String, Callbacks> entry : callbacks.entrySet()) {
+            entry.getValue().latency.write(out, "luascript_callback_seconds", "script", entry.getKey());
+        }
+        header(out, "luascript_callback_errors_total", "Lua callbacks that raised an error.", "counter");
+        for (Map.Entry<String, Callbacks> entry : callbacks.entrySet()) {
+            sample(out, "luascript_callback_errors_total", "script", entry.getKey(), null, entry.getValue().errors.sum());
+        }
+
+        header(out, "luascript_reload_seconds", "Time spent loading scripts, by kind of reload.", "histogram");
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(RELOADS).entrySet()) {
+            entry.getValue().write(out, "luascript_reload_seconds", "kind", entry.getKey());
+        }
+    }
+
+    private static void header(Appendable out, String name, String help, String type) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void gauge(Appendable out, String name, String help, long value) throws IOException {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(Long.toString(value)).append('\n');
+    }
+
+    private static void sample(Appendable out, String name, String label, String labelValue, String le, Object value) throws IOException {
+        out.append(name).append('{').append(label).append("=\"").append(escape(labelValue)).append('"');
+        if (le != null) {
+            out.append(",le=\"").append(le).append('"');
+        }
+        out.append("} ").append(String.valueOf(value)).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Callback latency and error count of one script.
+     */
+    static final class Callbacks {
+        private final Histogram latency = new Histogram(CALLBACK_BUCKETS);
+        private final LongAdder errors = new LongAdder();
+
+        void record(long nanos, boolean failed) {
+            latency.record(nanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * A histogram with fixed buckets; each observation increments one bucket, the sum and the count.
+     */
+    private static final class Histogram {
+        private final double[] bounds;
+        private final long[] boundNanos;
+        private final LongAdder[] buckets;
+        private final LongAdder sumNanos = new LongAdder();
+
+        Histogram(double[] bounds) {
+            this.bounds = bounds;
+            this.boundNanos = new long[bounds.length];
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < bounds.length; i++) {
+                boundNanos[i] = (long) (bounds[i] * 1e9);
+            }
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            int i = 0;
+            while (i < boundNanos.length && nanos > boundNanos[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sumNanos.add(nanos);
+        }
+
+        void write(Appendable out, String name, String label, String labelValue) throws IOException {
+            long cumulative = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                cumulative += buckets[i].sum();
+                sample(out, name + "_bucket", label, labelValue, Double.toString(bounds[i]), cumulative);
+            }
+            cumulative += buckets[bounds.length].sum();
+            sample(out, name + "_bucket", label, labelValue, "+Inf", cumulative);
+            sample(out, name + "_sum", label, labelValue, null, sumNanos.sum() / 1e9);
+            sample(out, name + "_count", label, labelValue, null, cumulative);
+        }
+    }
+
+    private record Gauges(int scripts, int tasks, int commands, int subscriptions, int dispatchers, long pendingBlocks) {
+    }
+}
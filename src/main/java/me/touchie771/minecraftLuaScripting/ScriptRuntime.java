@@ -0,0 +1,125 @@
+package me.touchie771.minecraftLuaScripting;
+
+import me.touchie771.minecraftLuaScripting.eventHandlers.EventListener;
+import org.bukkit.Bukkit;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.Varargs;
+
+import java.io.File;
+
+/**
+ * The isolated Lua state of a single script file.
+ * Each script owns its own globals and event listener; tasks and commands it creates are tracked
+ * under its name so reloading the script only tears down what it registered.
+ */
+public final class ScriptRuntime {
+
+    private final String name;
+    private final File file;
+    private final Globals globals;
+    private final ScriptMetrics.Callbacks metrics;
+    private EventListener eventListener;
+    private ScriptWatchdog watchdog;
+    private Prototype prototype;
+    private volatile boolean closed;
+
+    ScriptRuntime(String name, File file, Globals globals) {
+        this.name = name;
+        this.file = file;
+        this.globals = globals;
+        this.metrics = ScriptMetrics.callbacks(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public Globals getGlobals() {
+        return globals;
+    }
+
+    public EventListener getEventListener() {
+        return eventListener;
+    }
+
+    void setEventListener(EventListener eventListener) {
+        this.eventListener = eventListener;
+    }
+
+    public ScriptWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    void setWatchdog(ScriptWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * @return The compiled chunk this runtime last executed, or null before it ran
+     */
+    Prototype getPrototype() {
+        return prototype;
+    }
+
+    void setPrototype(Prototype prototype) {
+        this.prototype = prototype;
+    }
+
+    /**
+     * Calls a Lua callback of this script, enforcing the watchdog budget on the server thread
+     * and recording its latency while the profiler or metrics are running.
+     *
+     * @param handlerName A short description of the handler, used when the callback is aborted
+     * @param function The Lua function to call
+     * @param args The arguments
+     * @return The values returned by the function
+     */
+    public Varargs invoke(String handlerName, LuaValue function, Varargs args) {
+        boolean profiling = CallbackProfiler.isEnabled();
+        boolean measuring = ScriptMetrics.isEnabled();
+        if (!profiling && !measuring) {
+            return invokeGuarded(handlerName, function, args);
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Varargs result = invokeGuarded(handlerName, function, args);
+            failed = false;
+            return result;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            if (profiling) {
+                CallbackProfiler.record(name, handlerName, nanos);
+            }
+            if (measuring) {
+                metrics.record(nanos, failed);
+            }
+        }
+    }
+
+    private Varargs invokeGuarded(String handlerName, LuaValue function, Varargs args) {
+        ScriptWatchdog guard = watchdog;
+        if (guard == null || !Bukkit.isPrimaryThread() || !guard.enter(handlerName)) {
+            return function.invoke(args);
+        }
+        try {
+            return function.invoke(args);
+        } finally {
+            guard.exit();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    void markClosed() {
+        this.closed = true;
+    }
+}
@@ -0,0 +1,136 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.DebugLib;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Enforces a per-invocation instruction and time budget on a script's callbacks through the LuaJ debug hook.
+ * Once a callback goes over budget every further instruction raises an error, so a runaway loop cannot
+ * keep itself alive by catching the error with pcall.
+ */
+public final class ScriptWatchdog extends DebugLib {
+
+    private final String scriptName;
+    private final Logger logger;
+    private final Settings settings;
+    // LuaJ runs coroutines on their own Java threads while the resuming thread waits for them.
+    private final Set<Thread> coroutineThreads = ConcurrentHashMap.newKeySet();
+
+    private Thread activeThread;
+    private String handlerName;
+    private long instructions;
+    private long deadline;
+    private boolean tripped;
+
+    ScriptWatchdog(String scriptName, Logger logger, Settings settings) {
+        this.scriptName = scriptName;
+        this.logger = logger;
+        this.settings = settings;
+    }
+
+    /**
+     * Starts the budget for a callback.
+     *
+     * @param handlerName The handler name used when reporting an abort
+     * @return true if this is the outermost guarded call and {@link #exit()} must be called when it returns
+     */
+    boolean enter(String handlerName) {
+        if (activeThread != null) {
+            // Nested callback of the same script, e.g. an event fired from inside a handler: share the outer budget.
+            return false;
+        }
+        this.activeThread = Thread.currentThread();
+        this.handlerName = handlerName;
+        this.instructions = 0;
+        this.deadline = settings.maxMillis() > 0 ? System.nanoTime() + settings.maxMillis() * 1_000_000L : 0;
+        this.tripped = false;
+        return true;
+    }
+
+    void exit() {
+        this.activeThread = null;
+        this.handlerName = null;
+    }
+
+    /**
+     * Counts a coroutine thread of this script against the budget of the callback that resumes it.
+     */
+    public void adoptCoroutine(Thread thread) {
+        coroutineThreads.add(thread);
+    }
+
+    public void releaseCoroutine(Thread thread) {
+        coroutineThreads.remove(thread);
+    }
+
+    @Override
+    public void onInstruction(int pc, Varargs v, int top) {
+        Thread current = Thread.currentThread();
+        if (activeThread == current || (activeThread != null && coroutineThreads.contains(current))) {
+            long count = ++instructions;
+            if (tripped) {
+                throw budgetError();
+            }
+            if (settings.maxInstructions() > 0 && count > settings.maxInstructions()) {
+                abort("instruction budget of " + settings.maxInstructions() + " instructions");
+            }
+            if (deadline != 0 && count % settings.timeCheckInterval() == 0 && System.nanoTime() - deadline > 0) {
+                abort("time budget of " + settings.maxMillis() + " ms");
+            }
+        }
+        super.onInstruction(pc, v, top);
+    }
+
+    private void abort(String budget) {
+        tripped = true;
+        logger.severe("Aborted Lua handler " + handlerName + " in " + scriptName + ": exceeded its " + budget);
+        throw budgetError();
+    }
+
+    private LuaError budgetError() {
+        return new LuaError("handler " + handlerName + " in " + scriptName + " exceeded its execution budget and was aborted");
+    }
+
+    /**
+     * Watchdog configuration, read from the {@code watchdog} section of config.yml.
+     *
+     * @param enabled Whether callbacks are guarded at all
+     * @param maxInstructions Maximum instructions per callback, 0 for unlimited
+     * @param maxMillis Maximum wall-clock time per callback in milliseconds, 0 for unlimited
+     * @param timeCheckInterval Instructions between clock reads
+     * @param trustedScripts Scripts that run without the debug hook
+     */
+    public record Settings(boolean enabled, long maxInstructions, long maxMillis, int timeCheckInterval,
+                           Set<String> trustedScripts) {
+
+        public static Settings fromConfig(ConfigurationSection section) {
+            if (section == null) {
+                return new Settings(true, 10_000_000L, 500L, 1024, Set.of());
+            }
+            Set<String> trusted = new HashSet<>();
+            for (String name : section.getStringList("trusted-scripts")) {
+                trusted.add(name.endsWith(".lua") ? name : name + ".lua");
+            }
+            return new Settings(
+                    section.getBoolean("enabled", true),
+                    Math.max(0L, section.getLong("max-instructions", 10_000_000L)),
+                    Math.max(0L, section.getLong("max-millis", 500L)),
+                    Math.max(1, section.getInt("time-check-interval", 1024)),
+                    trusted);
+        }
+
+        /**
+         * @return true if the script should run with the debug hook installed
+         */
+        public boolean guards(String scriptName) {
+            return enabled && (maxInstructions > 0 || maxMillis > 0) && !trustedScripts.contains(scriptName);
+        }
+    }
+}
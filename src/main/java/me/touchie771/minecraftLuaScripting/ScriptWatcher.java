@@ -0,0 +1,172 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.Prototype;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the scripts folder and hot-reloads scripts when they change.
+ * Saves are debounced per file, changed scripts are read and compiled on the watcher thread,
+ * and only the swap of the old runtime for the new one runs on the server thread. A script that
+ * fails to compile is reported and the running version is kept.
+ */
+public final class ScriptWatcher {
+
+    private final MinecraftLuaScripting plugin;
+    private final File folder;
+    private final ScriptCache scriptCache;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private ScriptWatcher(MinecraftLuaScripting plugin, File folder, ScriptCache scriptCache, long debounceMillis) throws IOException {
+        this.plugin = plugin;
+        this.folder = folder;
+        this.scriptCache = scriptCache;
+        this.debounceMillis = debounceMillis;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        folder.toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::run, "LuaScriptWatcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching a folder.
+     *
+     * @throws IOException If the folder cannot be watched
+     */
+    static ScriptWatcher start(MinecraftLuaScripting plugin, File folder, ScriptCache scriptCache, long debounceMillis) throws IOException {
+        ScriptWatcher watcher = new ScriptWatcher(plugin, folder, scriptCache, debounceMillis);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    private void run() {
+        // Script name to the time its last change settles, in nanoTime.
+        Map<String, Long> pending = new HashMap<>();
+        try {
+            while (!closed) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long wait = Math.max(0, pending.values().stream().mapToLong(Long::longValue).min().orElse(0) - System.nanoTime());
+                    key = watchService.poll(wait, TimeUnit.NANOSECONDS);
+                }
+
+                if (key != null) {
+                    long settlesAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            String[] names = folder.list((dir, name) -> name.endsWith(".lua"));
+                            if (names != null) {
+                                for (String name : names) {
+                                    pending.put(name, settlesAt);
+                                }
+                            }
+                            continue;
+                        }
+                        String name = ((Path) event.context()).getFileName().toString();
+                        if (name.endsWith(".lua")) {
+                            pending.put(name, settlesAt);
+                        }
+                    }
+                    key.reset();
+                }
+
+                long now = System.nanoTime();
+                Iterator<Map.Entry<String, Long>> due = pending.entrySet().iterator();
+                while (due.hasNext()) {
+                    Map.Entry<String, Long> entry = due.next();
+                    if (entry.getValue() - now <= 0) {
+                        due.remove();
+                        reload(entry.getKey());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped.
+        }
+    }
+
+    /**
+     * Compiles a changed script on this thread and hands the result to the server thread.
+     */
+    private void reload(String scriptName) {
+        File file = new File(folder, scriptName);
+        if (!file.isFile()) {
+            swapOnServerThread(() -> ScriptExecutor.unloadScript(plugin, scriptName));
+            return;
+        }
+
+        Prototype prototype;
+        try {
+            prototype = scriptCache.load(file, ScriptExecutor.chunkName(file));
+        } catch (LuaError e) {
+            plugin.getLogger().severe("Not reloading " + scriptName + ", it failed to compile; the running version is kept: " + e.getMessage());
+            return;
+        } catch (IOException e) {
+            plugin.getLogger().warning("Not reloading " + scriptName + ", it could not be read: " + e);
+            return;
+        }
+        swapOnServerThread(() -> ScriptExecutor.swapScript(plugin, file, prototype));
+    }
+
+    private void swapOnServerThread(Runnable swap) {
+        try {
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (!closed) {
+                    swap.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            // The plugin is being disabled.
+        }
+    }
+
+    void stop() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to close script watcher: " + e);
+        }
+    }
+
+    /**
+     * Watcher configuration, read from the {@code watcher} section of config.yml.
+     *
+     * @param enabled Whether scripts are hot-reloaded when they change
+     * @param debounceMillis How long a script must stay unchanged before it is reloaded
+     */
+    public record Settings(boolean enabled, long debounceMillis) {
+
+        public static Settings fromConfig(ConfigurationSection section) {
+            if (section == null) {
+                return new Settings(false, 500L);
+            }
+            return new Settings(
+                    section.getBoolean("enabled", false),
+                    Math.max(0L, section.getLong("debounce-millis", 500L)));
+        }
+    }
+}
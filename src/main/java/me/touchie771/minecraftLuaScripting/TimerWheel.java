@@ -0,0 +1,404 @@
+package me.touchie771.minecraftLuaScripting;
+
+import me.touchie771.minecraftLuaScripting.util.IntObjectMap;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hierarchical timer wheel that owns every timer created by Lua scripts, driven by a single repeating
+ * Bukkit task that only runs while timers are pending.
+ * Four levels of 64 slots cover 2^24 ticks; longer delays are parked in the top level and cascaded
+ * again until due. Scheduling and cancelling are O(1).
+ * <p>
+ * The wheel itself is only touched on the server thread. Calls from other threads are queued and
+ * applied at the start of the next tick.
+ */
+public final class TimerWheel {
+
+    private static final int LEVEL_BITS = 6;
+    private static final int SLOTS = 1 << LEVEL_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (LEVEL_BITS * LEVELS);
+    private static final int HISTORY_TICKS = 20;
+
+    private final MinecraftLuaScripting plugin;
+    private final Bucket[][] wheel = new Bucket[LEVELS][SLOTS];
+    private Bucket spare = new Bucket();
+    private final IntObjectMap<Timer> timers = new IntObjectMap<>();
+    private final Map<String, Timer> ownerHeads = new HashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Queue<Runnable> offThreadOps = new ConcurrentLinkedQueue<>();
+    private final Queue<Timer> finishedAsync = new ConcurrentLinkedQueue<>();
+    private BukkitTask driver;
+    private long currentTick;
+
+    private final int[] firedHistory = new int[HISTORY_TICKS];
+    private int lastFired;
+    private long totalFired;
+
+    TimerWheel(MinecraftLuaScripting plugin) {
+        this.plugin = plugin;
+        for (Bucket[] level : wheel) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * Schedules a task on the server thread.
+     *
+     * @param owner The script that owns the timer
+     * @param delay Ticks before the first run; values below 1 run on the next tick
+     * @param period Ticks between runs, or 0 to run once
+     * @param task The task
+     * @return The timer id
+     */
+    public int schedule(String owner, long delay, long period, Runnable task) {
+        return add(new Timer(nextId.incrementAndGet(), owner, delay, Math.max(0, period), task, false));
+    }
+
+    /**
+     * Schedules a task on a Bukkit async thread after a delay. The id stays valid until the task finishes.
+     *
+     * @param delay Ticks before the task is started, or 0 to start it right away
+     */
+    public int scheduleAsync(String owner, long delay, Runnable task) {
+        return add(new Timer(nextId.incrementAndGet(), owner, delay, 0, task, true));
+    }
+
+    private int add(Timer timer) {
+        if (Bukkit.isPrimaryThread()) {
+            register(timer);
+        } else {
+            offThreadOps.add(() -> register(timer));
+        }
+        ensureDriver();
+        return timer.id;
+    }
+
+    private void register(Timer timer) {
+        timers.put(timer.id, timer);
+        Timer head = ownerHeads.put(timer.owner, timer);
+        if (head != null) {
+            timer.ownerNext = head;
+            head.ownerPrev = timer;
+        }
+        timer.registered = true;
+
+        if (timer.async && timer.delay <= 0) {
+            launchAsync(timer);
+            return;
+        }
+        timer.deadline = currentTick + Math.max(1, timer.delay);
+        insert(timer);
+    }
+
+    /**
+     * Cancels a timer. Async tasks that already started keep running but are no longer tracked.
+     *
+     * @return false if no timer with that id is pending
+     */
+    public boolean cancel(int id) {
+        if (!Bukkit.isPrimaryThread()) {
+            offThreadOps.add(() -> cancel(id));
+            return true;
+        }
+        Timer timer = timers.get(id);
+        if (timer == null) {
+            return false;
+        }
+        unlinkOwner(timer);
+        discard(timer);
+        return true;
+    }
+
+    /**
+     * Cancels every timer owned by a script.
+     */
+    public void cancelOwner(String owner) {
+        if (!Bukkit.isPrimaryThread()) {
+            offThreadOps.add(() -> cancelOwner(owner));
+            return;
+        }
+        Timer timer = ownerHeads.remove(owner);
+        while (timer != null) {
+            Timer next = timer.ownerNext;
+            timer.ownerPrev = null;
+            timer.ownerNext = null;
+            discard(timer);
+            timer = next;
+        }
+    }
+
+    /**
+     * Cancels every timer and stops the driving task.
+     */
+    public void cancelAll() {
+        offThreadOps.clear();
+        timers.forEachValue(this::discard);
+        ownerHeads.clear();
+        finishedAsync.clear();
+        stopDriver();
+    }
+
+    /**
+     * Removes a timer from the wheel and the id map. The owner list is left to the caller.
+     */
+    private void discard(Timer timer) {
+        timer.registered = false;
+        timers.remove(timer.id);
+        if (timer.bucket != null) {
+            timer.bucket.unlink(timer);
+        }
+        if (timer.asyncTask != null) {
+            timer.asyncTask.cancel();
+        }
+    }
+
+    private void unlinkOwner(Timer timer) {
+        if (timer.ownerPrev != null) {
+            timer.ownerPrev.ownerNext = timer.ownerNext;
+        } else if (timer.ownerNext != null) {
+            ownerHeads.put(timer.owner, timer.ownerNext);
+        } else {
+            ownerHeads.remove(timer.owner, timer);
+        }
+        if (timer.ownerNext != null) {
+            timer.ownerNext.ownerPrev = timer.ownerPrev;
+        }
+        timer.ownerPrev = null;
+        timer.ownerNext = null;
+    }
+
+    private void forget(Timer timer) {
+        unlinkOwner(timer);
+        timer.registered = false;
+        timers.remove(timer.id);
+    }
+
+    private void insert(Timer timer) {
+        long delta = timer.deadline - currentTick;
+        long slotTick = timer.deadline;
+        int level = 0;
+        if (delta >= MAX_SPAN) {
+            // Park it as far out as the wheel reaches; it is re-inserted when that slot cascades.
+            level = LEVELS - 1;
+            slotTick = currentTick + MAX_SPAN - 1;
+        } else {
+            while (delta >= 1L << (LEVEL_BITS * (level + 1))) {
+                level++;
+            }
+        }
+        wheel[level][(int) (slotTick >>> (LEVEL_BITS * level)) & SLOT_MASK].link(timer);
+    }
+
+    private void tick() {
+        Runnable op;
+        while ((op = offThreadOps.poll()) != null) {
+            op.run();
+        }
+        Timer finished;
+        while ((finished = finishedAsync.poll()) != null) {
+            if (finished.registered) {
+                forget(finished);
+            }
+        }
+
+        long now = ++currentTick;
+        for (int level = 1; level < LEVELS; level++) {
+            if ((now & ((1L << (LEVEL_BITS * level)) - 1)) != 0) {
+                break;
+            }
+            cascade(wheel[level], (int) (now >>> (LEVEL_BITS * level)) & SLOT_MASK);
+        }
+
+        int fired = 0;
+        int index = (int) now & SLOT_MASK;
+        Bucket due = wheel[0][index];
+        if (due.head != null) {
+            wheel[0][index] = spare;
+            spare = due;
+            Timer timer;
+            while ((timer = due.head) != null) {
+                due.unlink(timer);
+                if (timer.deadline > now) {
+                    insert(timer);
+                    continue;
+                }
+                fire(timer, now);
+                fired++;
+            }
+        }
+
+        lastFired = fired;
+        totalFired += fired;
+        firedHistory[(int) (now % HISTORY_TICKS)] = fired;
+
+        if (timers.isEmpty()) {
+            stopDriver();
+        }
+    }
+
+    private void cascade(Bucket[] level, int index) {
+        Bucket bucket = level[index];
+        if (bucket.head == null) {
+            return;
+        }
+        level[index] = spare;
+        spare = bucket;
+        Timer timer;
+        while ((timer = bucket.head) != null) {
+            bucket.unlink(timer);
+            insert(timer);
+        }
+    }
+
+    private void fire(Timer timer, long now) {
+        if (timer.async) {
+            launchAsync(timer);
+            return;
+        }
+        if (timer.period > 0) {
+            // Re-arm before running so the task can cancel itself.
+            timer.deadline = now + timer.period;
+            insert(timer);
+        } else {
+            forget(timer);
+        }
+        try {
+            timer.task.run();
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Error in Lua timer of " + timer.owner + ": " + e);
+        }
+    }
+
+    private void launchAsync(Timer timer) {
+        timer.asyncTask = Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                timer.task.run();
+            } finally {
+                finishedAsync.add(timer);
+            }
+        });
+    }
+
+    private synchronized void ensureDriver() {
+        if (driver == null) {
+            driver = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    private synchronized void stopDriver() {
+        if (driver != null && offThreadOps.isEmpty()) {
+            driver.cancel();
+            driver = null;
+            lastFired = 0;
+            Arrays.fill(firedHistory, 0);
+        }
+    }
+
+    /**
+     * @return The number of pending timers, including async tasks that have not finished
+     */
+    public int getPending() {
+        return timers.size();
+    }
+
+    public int getLastTickFired() {
+        return lastFired;
+    }
+
+    /**
+     * @return The average number of timers fired per tick over the last second
+     */
+    public double getAverageFired() {
+        long sum = 0;
+        for (int fired : firedHistory) {
+            sum += fired;
+        }
+        return (double) sum / HISTORY_TICKS;
+    }
+
+    /**
+     * @return The highest number of timers fired in a single tick over the last second
+     */
+    public int getPeakFired() {
+        int peak = 0;
+        for (int fired : firedHistory) {
+            peak = Math.max(peak, fired);
+        }
+        return peak;
+    }
+
+    public long getTotalFired() {
+        return totalFired;
+    }
+
+    private static final class Timer {
+        final int id;
+        final String owner;
+        final long delay;
+        final long period;
+        final Runnable task;
+        final boolean async;
+
+        long deadline;
+        boolean registered;
+        BukkitTask asyncTask;
+
+        Bucket bucket;
+        Timer prev;
+        Timer next;
+        Timer ownerPrev;
+        Timer ownerNext;
+
+        Timer(int id, String owner, long delay, long period, Runnable task, boolean async) {
+            this.id = id;
+            this.owner = owner;
+            this.delay = delay;
+            this.period = period;
+            this.task = task;
+            this.async = async;
+        }
+    }
+
+    /**
+     * Intrusive doubly-linked list of the timers in one slot.
+     */
+    private static final class Bucket {
+        Timer head;
+
+        void link(Timer timer) {
+            timer.bucket = this;
+            timer.prev = null;
+            timer.next = head;
+            if (head != null) {
+                head.prev = timer;
+            }
+            head = timer;
+        }
+
+        void unlink(Timer timer) {
+            if (timer.prev != null) {
+                timer.prev.next = timer.next;
+            } else {
+                head = timer.next;
+            }
+            if (timer.next != null) {
+                timer.next.prev = timer.prev;
+            }
+            timer.bucket = null;
+            timer.prev = null;
+            timer.next = null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package me.touchie771.minecraftLuaScripting.api;
+
+import me.touchie771.minecraftLuaScripting.MinecraftLuaScripting;
+import me.touchie771.minecraftLuaScripting.ScriptRuntime;
+import me.touchie771.minecraftLuaScripting.ScriptWatchdog;
+import me.touchie771.minecraftLuaScripting.TimerWheel;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.OneArgFunction;
+import org.luaj.vm2.lib.TwoArgFunction;
+import org.luaj.vm2.lib.VarArgFunction;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Coroutine scheduling for one script: {@code spawn} starts a function as a coroutine, and inside it
+ * {@code wait}/{@code sleep} and {@code waitUntil} park the coroutine in the {@link TimerWheel} until it is
+ * resumed on the server thread. Parked coroutines are timers of the script, so they are dropped with it.
+ */
+public final class CoroutineApi {
+
+    private final MinecraftLuaScripting plugin;
+    private final ScriptRuntime runtime;
+    private final TimerWheel timers;
+    private final int maxCoroutines;
+    // Coroutines started by spawn; wait() refuses to park anything else.
+    private final Set<LuaThread> spawned = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    /**
+     * @param maxCoroutines Coroutines of the script that may be alive at once, 0 for unlimited
+     */
+    public CoroutineApi(MinecraftLuaScripting plugin, ScriptRuntime runtime, TimerWheel timers, int maxCoroutines) {
+        this.plugin = plugin;
+        this.runtime = runtime;
+        this.timers = timers;
+        this.maxCoroutines = maxCoroutines;
+    }
+
+    /**
+     * Resumes a coroutine through the runtime, so it runs under the script's watchdog budget.
+     */
+    private void resume(LuaThread thread, Varargs args) {
+        if (runtime.isClosed()) {
+            return;
+        }
+        Varargs result;
+        try {
+            result = runtime.invoke("coroutine", new Resume(thread), args);
+        } catch (Exception e) {
+            plugin.getLogger().severe("Error in coroutine of " + runtime.getName() + ": " + e);
+            spawned.remove(thread);
+            return;
+        }
+        if (!result.arg1().toboolean()) {
+            plugin.getLogger().severe("Error in coroutine of " + runtime.getName() + ": " + result.arg(2).tojstring());
+        }
+        if (thread.getStatus().equals("dead")) {
+            spawned.remove(thread);
+        }
+    }
+
+    private LuaThread checkParkable(String function) {
+        LuaThread running = runtime.getGlobals().running;
+        if (running.isMainThread() || !spawned.contains(running)) {
+            LuaValue.error(function + " can only be used inside a function started with spawn()");
+        }
+        return running;
+    }
+
+    private static final class Resume extends VarArgFunction {
+        private final LuaThread thread;
+
+        Resume(LuaThread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            return thread.resume(args);
+        }
+    }
+
+    /**
+     * The body of a spawned coroutine. LuaJ runs every coroutine on its own Java thread, so the thread
+     * is announced to the watchdog while the body runs.
+     */
+    private final class Body extends VarArgFunction {
+        private final LuaValue function;
+
+        Body(LuaValue function) {
+            this.function = function;
+        }
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            ScriptWatchdog watchdog = runtime.getWatchdog();
+            if (watchdog == null) {
+                return function.invoke(args);
+            }
+            Thread current = Thread.currentThread();
+            watchdog.adoptCoroutine(current);
+            try {
+                return function.invoke(args);
+            } finally {
+                watchdog.releaseCoroutine(current);
+            }
+        }
+    }
+
+    /**
+     * {@code spawn(fn, ...)}: runs {@code fn(...)} as a coroutine right away, until it finishes or first waits.
+     * Returns the coroutine. Raises an error if the script already has as many live coroutines as allowed,
+     * since each one holds a Java thread.
+     */
+    public final class Spawn extends VarArgFunction {
+        @Override
+        public Varargs invoke(Varargs args) {
+            LuaValue function = args.arg1();
+            if (!function.isfunction()) {
+                return LuaValue.error("spawn(fn, ...): fn must be a function");
+            }
+            if (maxCoroutines > 0 && spawned.size() >= maxCoroutines) {
+                return LuaValue.error("spawn(fn, ...): " + runtime.getName() + " already has " + maxCoroutines
+                        + " running coroutines (coroutines.max-per-script)");
+            }
+            LuaThread thread = new LuaThread(runtime.getGlobals(), new Body(function));
+            spawned.add(thread);
+            resume(thread, args.subargs(2));
+            return thread;
+        }
+    }
+
+    /**
+     * {@code wait(ticks)} / {@code sleep(ticks)}: parks the current coroutine for a number of ticks (at least one).
+     */
+    public final class Wait extends OneArgFunction {
+        @Override
+        public LuaValue call(LuaValue ticksVal) {
+            long ticks = ticksVal.optlong(1);
+            LuaThread thread = checkParkable("wait");
+            timers.schedule(runtime.getName(), Math.max(1, ticks), 0, () -> resume(thread, LuaValue.NONE));
+            runtime.getGlobals().yield(LuaValue.NONE);
+            return LuaValue.NONE;
+        }
+    }
+
+    /**
+     * {@code waitUntil(predicate[, timeoutTicks])}: parks the current coroutine until {@code predicate()} returns
+     * true, checking once per tick. Returns true, or false if the timeout passed first.
+     */
+    public final class WaitUntil extends TwoArgFunction {
+        @Override
+        public LuaValue call(LuaValue predicate, LuaValue timeoutVal) {
+            if (!predicate.isfunction()) {
+                return LuaValue.error("waitUntil(predicate, timeout): predicate must be a function");
+            }
+            long timeout = timeoutVal.optlong(0);
+            LuaThread thread = checkParkable("waitUntil");
+            if (predicate.call().toboolean()) {
+                return LuaValue.TRUE;
+            }
+
+            int[] timerId = new int[1];
+            long[] remaining = {timeout};
+            timerId[0] = timers.schedule(runtime.getName(), 1, 1, () -> {
+                boolean done;
+                try {
+                    done = runtime.invoke("waitUntil", predicate, LuaValue.NONE).arg1().toboolean();
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Error in waitUntil predicate of " + runtime.getName() + ": " + e);
+                    timers.cancel(timerId[0]);
+                    resume(thread, LuaValue.FALSE);
+                    return;
+                }
+                if (done || (timeout > 0 && --remaining[0] <= 0)) {
+                    timers.cancel(timerId[0]);
+                    resume(thread, LuaValue.valueOf(done));
+                }
+            });
+            return runtime.getGlobals().yield(LuaValue.NONE).arg1();
+        }
+    }
+}
@@ -1,16 +1,33 @@
 package me.touchie771.minecraftLuaScripting.api;
 
+import me.touchie771.minecraftLuaScripting.bindings.LuaBindings;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
+import org.bukkit.util.BoundingBox;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.VarArgFunction;
-import org.luaj.vm2.lib.jse.CoerceJavaToLua;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Predicate;
 
 public class EntityApi {
 
+    private static final LuaValue[] TYPE_NAMES = new LuaValue[EntityType.values().length];
+
+    static {
+        for (EntityType type : EntityType.values()) {
+            TYPE_NAMES[type.ordinal()] = LuaValue.valueOf(type.name());
+        }
+    }
+
     public static class SpawnEntity extends VarArgFunction {
         @Override
         public Varargs invoke(Varargs args) {
@@ -23,10 +40,161 @@ public class EntityApi {
             try {
                 EntityType type = EntityType.valueOf(typeName);
                 Entity entity = world.spawnEntity(new Location(world, x, y, z), type);
-                return CoerceJavaToLua.coerce(entity);
+                return LuaBindings.coerce(entity);
             } catch (IllegalArgumentException e) {
                 return LuaValue.error("Invalid entity type: " + typeName);
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * {@code getEntitiesNear(world, x, y, z, radius[, types[, compact]])}: entities whose position is within
+     * {@code radius} of a point, filtered by type in Java. See {@link #result} for the returned table.
+     */
+    public static class GetEntitiesNear extends VarArgFunction {
+        @Override
+        public Varargs invoke(Varargs args) {
+            World world = (World) args.checkuserdata(1, World.class);
+            double x = args.checkdouble(2);
+            double y = args.checkdouble(3);
+            double z = args.checkdouble(4);
+            double radius = args.checkdouble(5);
+            if (radius < 0) {
+                return LuaValue.error("getEntitiesNear: radius must not be negative");
+            }
+            Set<EntityType> types = checkTypes(args.arg(6), "getEntitiesNear");
+            double radiusSquared = radius * radius;
+
+            BoundingBox box = new BoundingBox(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius);
+            Predicate<Entity> filter = entity -> {
+                if (types != null && !types.contains(entity.getType())) {
+                    return false;
+                }
+                Location location = entity.getLocation();
+                double dx = location.getX() - x;
+                double dy = location.getY() - y;
+                double dz = location.getZ() - z;
+                return dx * dx + dy * dy + dz * dz <= radiusSquared;
+            };
+            return result(world.getNearbyEntities(box, filter), args.arg(7).toboolean());
+        }
+    }
+
+    /**
+     * {@code getEntitiesInBox(world, x1, y1, z1, x2, y2, z2[, types[, compact]])}: entities whose bounding box
+     * overlaps the box between two corners, filtered by type in Java. See {@link #result} for the returned table.
+     */
+    public static class GetEntitiesInBox extends VarArgFunction {
+        @Override
+        public Varargs invoke(Varargs args) {
+            World world = (World) args.checkuserdata(1, World.class);
+            BoundingBox box = new BoundingBox(
+                    args.checkdouble(2), args.checkdouble(3), args.checkdouble(4),
+                    args.checkdouble(5), args.checkdouble(6), args.checkdouble(7));
+            Set<EntityType> types = checkTypes(args.arg(8), "getEntitiesInBox");
+            Predicate<Entity> filter = types == null ? null : entity -> types.contains(entity.getType());
+            return result(world.getNearbyEntities(box, filter), args.arg(9).toboolean());
+        }
+    }
+
+    /**
+     * Reads an optional type filter: a type name, an EntityType, or a list of either.
+     *
+     * @return The accepted types, or null to accept every type
+     */
+    private static Set<EntityType> checkTypes(LuaValue value, String function) {
+        if (value.isnil()) {
+            return null;
+        }
+        Set<EntityType> types = EnumSet.noneOf(EntityType.class);
+        if (value.istable()) {
+            LuaTable table = value.checktable();
+            for (int i = 1, n = table.length(); i <= n; i++) {
+                types.add(checkType(table.rawget(i), function));
+            }
+        } else {
+            types.add(checkType(value, function));
+        }
+        return types;
+    }
+
+    private static EntityType checkType(LuaValue value, String function) {
+        if (value.isuserdata(EntityType.class)) {
+            return (EntityType) value.touserdata(EntityType.class);
+        }
+        String name = value.checkjstring().toUpperCase();
+        try {
+            return EntityType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new LuaError(function + ": invalid entity type: " + name);
+        }
+    }
+
+    /**
+     * Builds a query result. By default a list of entity handles. In compact form a table of parallel arrays
+     * {@code id}, {@code x}, {@code y}, {@code z} and {@code type} with a {@code count}, plus {@code entity(i)},
+     * which creates the handle of the i-th entity only when it is asked for.
+     */
+    private static LuaValue result(Collection<Entity> found, boolean compact) {
+        Entity[] entities = found.toArray(new Entity[0]);
+        if (!compact) {
+            LuaTable list = new LuaTable(entities.length, 0);
+            for (int i = 0; i < entities.length; i++) {
+                list.rawset(i + 1, LuaBindings.coerce(entities[i]));
+            }
+            return list;
+        }
+
+        LuaTable ids = new LuaTable(entities.length, 0);
+        LuaTable xs = new LuaTable(entities.length, 0);
+        LuaTable ys = new LuaTable(entities.length, 0);
+        LuaTable zs = new LuaTable(entities.length, 0);
+        LuaTable typeNames = new LuaTable(entities.length, 0);
+        for (int i = 0; i < entities.length; i++) {
+            Entity entity = entities[i];
+            Location location = entity.getLocation();
+            ids.rawset(i + 1, LuaValue.valueOf(entity.getEntityId()));
+            xs.rawset(i + 1, LuaValue.valueOf(location.getX()));
+            ys.rawset(i + 1, LuaValue.valueOf(location.getY()));
+            zs.rawset(i + 1, LuaValue.valueOf(location.getZ()));
+            typeNames.rawset(i + 1, TYPE_NAMES[entity.getType().ordinal()]);
+        }
+
+        LuaTable result = new LuaTable();
+        result.set("count", entities.length);
+        result.set("id", ids);
+        result.set("x", xs);
+        result.set("y", ys);
+        result.set("z", zs);
+        result.set("type", typeNames);
+        result.set("entity", new LazyHandles(entities));
+        return result;
+    }
+
+    /**
+     * {@code result.entity(i)}: the handle of the i-th entity of a compact result, created on first use.
+     */
+    private static final class LazyHandles extends OneArgFunction {
+        private final Entity[] entities;
+        private final LuaValue[] handles;
+
+        LazyHandles(Entity[] entities) {
+            this.entities = entities;
+            this.handles = new LuaValue[entities.length];
+        }
+
+        @Override
+        public LuaValue call(LuaValue indexVal) {
+            int index = indexVal.checkint() - 1;
+            if (index < 0 || index >= entities.length) {
+                return LuaValue.NIL;
+            }
+            LuaValue handle = handles[index];
+            if (handle == null) {
+                handle = LuaBindings.coerce(entities[index]);
+                handles[index] = handle;
+            }
+            return handle;
+        }
+    }
+}
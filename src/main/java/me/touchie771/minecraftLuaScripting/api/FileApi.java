@@ -0,0 +1,154 @@
+package me.touchie771.minecraftLuaScripting.api;
+
+import me.touchie771.minecraftLuaScripting.MinecraftLuaScripting;
+import me.touchie771.minecraftLuaScripting.ScriptFileService;
+import me.touchie771.minecraftLuaScripting.ScriptRuntime;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.ThreeArgFunction;
+import org.luaj.vm2.lib.TwoArgFunction;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Non-blocking file functions. Paths are relative to the script's {@code LuaScripts/data/<script>/} folder
+ * and every callback runs on the server thread as {@code fn(result, err)}.
+ */
+public final class FileApi {
+
+    private FileApi() {
+    }
+
+    private static Path resolve(ScriptFileService files, ScriptRuntime runtime, String function, String path) {
+        try {
+            return files.resolve(runtime.getName(), path);
+        } catch (IllegalArgumentException e) {
+            throw new LuaError(function + ": " + e.getMessage());
+        }
+    }
+
+    private static ScriptFileService.Completion completion(MinecraftLuaScripting plugin, ScriptRuntime runtime,
+                                                           String function, LuaValue callback) {
+        return (result, error) -> {
+            if (callback.isnil() || runtime.isClosed()) {
+                return;
+            }
+            Varargs args;
+            if (error != null) {
+                args = LuaValue.varargsOf(LuaValue.NIL, LuaValue.valueOf(error));
+            } else if (result instanceof String content) {
+                args = LuaValue.varargsOf(LuaValue.valueOf(content), LuaValue.NIL);
+            } else if (result instanceof List<?> names) {
+                LuaTable table = new LuaTable(names.size(), 0);
+                for (int i = 0; i < names.size(); i++) {
+                    table.rawset(i + 1, LuaValue.valueOf(names.get(i).toString()));
+                }
+                args = LuaValue.varargsOf(table, LuaValue.NIL);
+            } else {
+                args = LuaValue.varargsOf(LuaValue.TRUE, LuaValue.NIL);
+            }
+            try {
+                runtime.invoke(function, callback, args);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Error in " + function + " callback of " + runtime.getName() + ": " + e);
+            }
+        };
+    }
+
+    private static LuaValue checkCallback(LuaValue callbackVal, boolean optional, String usage) {
+        if ((optional && callbackVal.isnil()) || callbackVal.isfunction()) {
+            return callbackVal;
+        }
+        return LuaValue.error(usage + ": fn must be a function");
+    }
+
+    public static final class ReadFile extends TwoArgFunction {
+        private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final ScriptFileService files;
+
+        public ReadFile(MinecraftLuaScripting plugin, ScriptRuntime runtime, ScriptFileService files) {
+            this.plugin = plugin;
+            this.runtime = runtime;
+            this.files = files;
+        }
+
+        @Override
+        public LuaValue call(LuaValue pathVal, LuaValue callbackVal) {
+            Path path = resolve(files, runtime, "readFile", pathVal.checkjstring());
+            LuaValue callback = checkCallback(callbackVal, false, "readFile(path, fn)");
+            files.read(runtime, path, completion(plugin, runtime, "readFile", callback));
+            return LuaValue.NONE;
+        }
+    }
+
+    public static final class WriteFile extends ThreeArgFunction {
+        private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final ScriptFileService files;
+
+        public WriteFile(MinecraftLuaScripting plugin, ScriptRuntime runtime, ScriptFileService files) {
+            this.plugin = plugin;
+            this.runtime = runtime;
+            this.files = files;
+        }
+
+        @Override
+        public LuaValue call(LuaValue pathVal, LuaValue contentVal, LuaValue callbackVal) {
+            Path path = resolve(files, runtime, "writeFile", pathVal.checkjstring());
+            String content = contentVal.checkjstring();
+            LuaValue callback = checkCallback(callbackVal, true, "writeFile(path, content, fn)");
+            files.write(runtime, path, content, completion(plugin, runtime, "writeFile", callback));
+            return LuaValue.NONE;
+        }
+    }
+
+    public static final class AppendFile extends ThreeArgFunction {
+        private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final ScriptFileService files;
+
+        public AppendFile(MinecraftLuaScripting plugin, ScriptRuntime runtime, ScriptFileService files) {
+            this.plugin = plugin;
+            this.runtime = runtime;
+            this.files = files;
+        }
+
+        @Override
+        public LuaValue call(LuaValue pathVal, LuaValue contentVal, LuaValue callbackVal) {
+            Path path = resolve(files, runtime, "appendFile", pathVal.checkjstring());
+            String content = contentVal.checkjstring();
+            LuaValue callback = checkCallback(callbackVal, true, "appendFile(path, content, fn)");
+            files.append(runtime, path, content, completion(plugin, runtime, "appendFile", callback));
+            return LuaValue.NONE;
+        }
+    }
+
+    public static final class ListDir extends TwoArgFunction {
+        private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final ScriptFileService files;
+
+        public ListDir(MinecraftLuaScripting plugin, ScriptRuntime runtime, ScriptFileService files) {
+            this.plugin = plugin;
+            this.runtime = runtime;
+            this.files = files;
+        }
+
+        @Override
+        public LuaValue call(LuaValue pathVal, LuaValue callbackVal) {
+            // listDir(fn) lists the data folder itself.
+            if (pathVal.isfunction() && callbackVal.isnil()) {
+                callbackVal = pathVal;
+                pathVal = LuaValue.valueOf("");
+            }
+            Path path = resolve(files, runtime, "listDir", pathVal.optjstring(""));
+            LuaValue callback = checkCallback(callbackVal, false, "listDir(path, fn)");
+            files.list(runtime, path, completion(plugin, runtime, "listDir", callback));
+            return LuaValue.NONE;
+        }
+    }
+}
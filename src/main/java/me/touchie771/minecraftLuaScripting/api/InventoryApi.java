@@ -1,5 +1,6 @@
 package me.touchie771.minecraftLuaScripting.api;
 
+import me.touchie771.minecraftLuaScripting.bindings.LuaBindings;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
@@ -8,7 +9,6 @@ import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.VarArgFunction;
-import org.luaj.vm2.lib.jse.CoerceJavaToLua;
 
 public class InventoryApi {
 
@@ -17,7 +17,7 @@ public class InventoryApi {
         public LuaValue call(LuaValue holderVal) {
             if (holderVal.isuserdata(Player.class)) {
                 Player player = (Player) holderVal.checkuserdata(Player.class);
-                return CoerceJavaToLua.coerce(player.getInventory());
+                return LuaBindings.coerce(player.getInventory());
             }
             return LuaValue.NIL;
         }
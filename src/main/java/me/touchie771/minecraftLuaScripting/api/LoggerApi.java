@@ -1,51 +1,52 @@
 package me.touchie771.minecraftLuaScripting.api;
 
+import me.touchie771.minecraftLuaScripting.ScriptLog;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.OneArgFunction;
 
-import java.util.logging.Logger;
+import java.util.logging.Level;
 
 public class LoggerApi {
 
     public static class Info extends OneArgFunction {
-        private final Logger logger;
+        private final ScriptLog.Channel log;
 
-        public Info(Logger logger) {
-            this.logger = logger;
+        public Info(ScriptLog.Channel log) {
+            this.log = log;
         }
 
         @Override
         public LuaValue call(LuaValue arg) {
-            logger.info(arg.checkjstring());
+            log.log(Level.INFO, arg.checkjstring());
             return LuaValue.NONE;
         }
     }
 
     public static class Warning extends OneArgFunction {
-        private final Logger logger;
+        private final ScriptLog.Channel log;
 
-        public Warning(Logger logger) {
-            this.logger = logger;
+        public Warning(ScriptLog.Channel log) {
+            this.log = log;
         }
 
         @Override
         public LuaValue call(LuaValue arg) {
-            logger.warning(arg.checkjstring());
+            log.log(Level.WARNING, arg.checkjstring());
             return LuaValue.NONE;
         }
     }
 
     public static class Error extends OneArgFunction {
-        private final Logger logger;
+        private final ScriptLog.Channel log;
 
-        public Error(Logger logger) {
-            this.logger = logger;
+        public Error(ScriptLog.Channel log) {
+            this.log = log;
         }
 
         @Override
         public LuaValue call(LuaValue arg) {
-            logger.severe(arg.checkjstring());
+            log.log(Level.SEVERE, arg.checkjstring());
             return LuaValue.NONE;
         }
     }
-}
\ No newline at end of file
+}
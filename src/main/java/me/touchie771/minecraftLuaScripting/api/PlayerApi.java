@@ -1,5 +1,7 @@
 package me.touchie771.minecraftLuaScripting.api;
 
+import me.touchie771.minecraftLuaScripting.PlayerIndex;
+import me.touchie771.minecraftLuaScripting.bindings.LuaBindings;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -9,16 +11,53 @@ import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.VarArgFunction;
-import org.luaj.vm2.lib.jse.CoerceJavaToLua;
 
 public class PlayerApi {
 
+    /**
+     * {@code getPlayer(nameOrUuid)}: an online player by name or UUID string. Exact matches are served
+     * from the player index; anything else falls back to Bukkit's name prefix lookup.
+     */
     public static class GetPlayer extends OneArgFunction {
+        private final PlayerIndex index;
+
+        public GetPlayer(PlayerIndex index) {
+            this.index = index;
+        }
+
         @Override
         public LuaValue call(LuaValue arg) {
-            Player player = Bukkit.getPlayer(arg.checkjstring());
+            String name = arg.checkjstring();
+            boolean indexed = index != null && Bukkit.isPrimaryThread();
+            if (indexed) {
+                LuaValue handle = index.find(name);
+                if (handle != null) return handle;
+            }
+            Player player = Bukkit.getPlayer(name);
             if (player == null) return LuaValue.NIL;
-            return CoerceJavaToLua.coerce(player);
+            LuaValue handle = indexed ? index.get(player) : null;
+            return handle != null ? handle : LuaBindings.coerce(player);
+        }
+    }
+
+    /**
+     * {@code getPlayerById(entityId)}: an online player by entity id, or nil.
+     */
+    public static class GetPlayerById extends OneArgFunction {
+        private final PlayerIndex index;
+
+        public GetPlayerById(PlayerIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public LuaValue call(LuaValue arg) {
+            int entityId = arg.checkint();
+            if (index == null || !Bukkit.isPrimaryThread()) {
+                return LuaValue.error("getPlayerById: must be called from the server thread");
+            }
+            LuaValue handle = index.getByEntityId(entityId);
+            return handle == null ? LuaValue.NIL : handle;
         }
     }
 
@@ -1,60 +1,32 @@
 package me.touchie771.minecraftLuaScripting.api;
 
 import me.touchie771.minecraftLuaScripting.MinecraftLuaScripting;
-import org.bukkit.Bukkit;
-import org.bukkit.scheduler.BukkitTask;
+import me.touchie771.minecraftLuaScripting.ScriptRuntime;
+import me.touchie771.minecraftLuaScripting.TimerWheel;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.VarArgFunction;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
+/**
+ * Scheduler functions for scripts. Every timer lives in the shared {@link TimerWheel} under the
+ * calling script's name, so task ids are wheel ids rather than Bukkit task ids.
+ */
 public final class SchedulerApi {
 
-    private static final Map<String, Set<Integer>> TASKS_BY_PLUGIN = new HashMap<>();
-
     private SchedulerApi() {
     }
 
-    public static void cancelAllTasks(MinecraftLuaScripting plugin) {
-        String key = plugin.getName();
-        Set<Integer> ids = TASKS_BY_PLUGIN.remove(key);
-        if (ids == null || ids.isEmpty()) {
-            return;
-        }
-        for (Integer id : ids) {
-            if (id == null) {
-                continue;
-            }
-            Bukkit.getScheduler().cancelTask(id);
-        }
-    }
-
-    private static void track(MinecraftLuaScripting plugin, int taskId) {
-        TASKS_BY_PLUGIN.computeIfAbsent(plugin.getName(), k -> new HashSet<>()).add(taskId);
-    }
-
-    private static void untrack(MinecraftLuaScripting plugin, int taskId) {
-        Set<Integer> ids = TASKS_BY_PLUGIN.get(plugin.getName());
-        if (ids == null) {
-            return;
-        }
-        ids.remove(taskId);
-        if (ids.isEmpty()) {
-            TASKS_BY_PLUGIN.remove(plugin.getName());
-        }
-    }
-
     public static final class RunLater extends TwoArgFunction {
         private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final TimerWheel timers;
 
-        public RunLater(MinecraftLuaScripting plugin) {
+        public RunLater(MinecraftLuaScripting plugin, ScriptRuntime runtime, TimerWheel timers) {
             this.plugin = plugin;
+            this.runtime = runtime;
+            this.timers = timers;
         }
 
         @Override
@@ -64,24 +36,27 @@ public final class SchedulerApi {
                 return LuaValue.error("runLater(ticks, fn): fn must be a function");
             }
 
-            BukkitTask task = Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            int taskId = timers.schedule(runtime.getName(), ticks, 0, () -> {
                 try {
-                    callbackVal.call();
+                    runtime.invoke("runLater", callbackVal, LuaValue.NONE);
                 } catch (Exception e) {
-                    plugin.getLogger().severe("Error in scheduled Lua task: " + e);
+                    plugin.getLogger().severe("Error in scheduled Lua task of " + runtime.getName() + ": " + e);
                 }
-            }, ticks);
+            });
 
-            track(plugin, task.getTaskId());
-            return LuaValue.valueOf(task.getTaskId());
+            return LuaValue.valueOf(taskId);
         }
     }
 
     public static final class RunRepeating extends VarArgFunction {
         private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final TimerWheel timers;
 
-        public RunRepeating(MinecraftLuaScripting plugin) {
+        public RunRepeating(MinecraftLuaScripting plugin, ScriptRuntime runtime, TimerWheel timers) {
             this.plugin = plugin;
+            this.runtime = runtime;
+            this.timers = timers;
         }
 
         @Override
@@ -93,24 +68,27 @@ public final class SchedulerApi {
                 return LuaValue.error("runRepeating(delayTicks, periodTicks, fn): fn must be a function");
             }
 
-            BukkitTask task = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            int taskId = timers.schedule(runtime.getName(), delay, Math.max(1, period), () -> {
                 try {
-                    callbackVal.call();
+                    runtime.invoke("runRepeating", callbackVal, LuaValue.NONE);
                 } catch (Exception e) {
-                    plugin.getLogger().severe("Error in repeating Lua task: " + e);
+                    plugin.getLogger().severe("Error in repeating Lua task of " + runtime.getName() + ": " + e);
                 }
-            }, delay, period);
+            });
 
-            track(plugin, task.getTaskId());
-            return LuaValue.valueOf(task.getTaskId());
+            return LuaValue.valueOf(taskId);
         }
     }
 
     public static final class RunAsync extends OneArgFunction {
         private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final TimerWheel timers;
 
-        public RunAsync(MinecraftLuaScripting plugin) {
+        public RunAsync(MinecraftLuaScripting plugin, ScriptRuntime runtime, TimerWheel timers) {
             this.plugin = plugin;
+            this.runtime = runtime;
+            this.timers = timers;
         }
 
         @Override
@@ -119,24 +97,27 @@ public final class SchedulerApi {
                 return LuaValue.error("runAsync(fn): fn must be a function");
             }
 
-            BukkitTask task = Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            int taskId = timers.scheduleAsync(runtime.getName(), 0, () -> {
                 try {
                     callbackVal.call();
                 } catch (Exception e) {
-                    plugin.getLogger().severe("Error in async Lua task: " + e);
+                    plugin.getLogger().severe("Error in async Lua task of " + runtime.getName() + ": " + e);
                 }
             });
 
-            track(plugin, task.getTaskId());
-            return LuaValue.valueOf(task.getTaskId());
+            return LuaValue.valueOf(taskId);
         }
     }
 
     public static final class RunAsyncLater extends TwoArgFunction {
         private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final TimerWheel timers;
 
-        public RunAsyncLater(MinecraftLuaScripting plugin) {
+        public RunAsyncLater(MinecraftLuaScripting plugin, ScriptRuntime runtime, TimerWheel timers) {
             this.plugin = plugin;
+            this.runtime = runtime;
+            this.timers = timers;
         }
 
         @Override
@@ -146,45 +127,50 @@ public final class SchedulerApi {
                 return LuaValue.error("runAsyncLater(ticks, fn): fn must be a function");
             }
 
-            BukkitTask task = Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> {
+            int taskId = timers.scheduleAsync(runtime.getName(), Math.max(1, ticks), () -> {
                 try {
                     callbackVal.call();
                 } catch (Exception e) {
-                    plugin.getLogger().severe("Error in async delayed Lua task: " + e);
+                    plugin.getLogger().severe("Error in async delayed Lua task of " + runtime.getName() + ": " + e);
                 }
-            }, ticks);
+            });
 
-            track(plugin, task.getTaskId());
-            return LuaValue.valueOf(task.getTaskId());
+            return LuaValue.valueOf(taskId);
         }
     }
 
     public static final class CancelTask extends OneArgFunction {
         private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final TimerWheel timers;
 
-        public CancelTask(MinecraftLuaScripting plugin) {
+        public CancelTask(MinecraftLuaScripting plugin, ScriptRuntime runtime, TimerWheel timers) {
             this.plugin = plugin;
+            this.runtime = runtime;
+            this.timers = timers;
         }
 
         @Override
         public LuaValue call(LuaValue taskIdVal) {
-            int taskId = taskIdVal.checkint();
-            Bukkit.getScheduler().cancelTask(taskId);
-            untrack(plugin, taskId);
+            timers.cancel(taskIdVal.checkint());
             return LuaValue.TRUE;
         }
     }
 
     public static final class CancelAllTasks extends OneArgFunction {
         private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final TimerWheel timers;
 
-        public CancelAllTasks(MinecraftLuaScripting plugin) {
+        public CancelAllTasks(MinecraftLuaScripting plugin, ScriptRuntime runtime, TimerWheel timers) {
             this.plugin = plugin;
+            this.runtime = runtime;
+            this.timers = timers;
         }
 
         @Override
         public LuaValue call(LuaValue ignored) {
-            cancelAllTasks(plugin);
+            timers.cancelOwner(runtime.getName());
             return LuaValue.TRUE;
         }
     }
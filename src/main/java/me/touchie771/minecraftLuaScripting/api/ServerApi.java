@@ -1,5 +1,6 @@
 package me.touchie771.minecraftLuaScripting.api;
 
+import me.touchie771.minecraftLuaScripting.PlayerIndex;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -20,9 +21,22 @@ public class ServerApi {
         }
     }
 
+    /**
+     * {@code getOnlinePlayers()}: the names of the online players. On the server thread this is a shared
+     * read-only list that only changes when a player joins or quits.
+     */
     public static class GetOnlinePlayers extends ZeroArgFunction {
+        private final PlayerIndex index;
+
+        public GetOnlinePlayers(PlayerIndex index) {
+            this.index = index;
+        }
+
         @Override
         public LuaValue call() {
+            if (index != null && Bukkit.isPrimaryThread()) {
+                return index.getNames();
+            }
             LuaTable table = new LuaTable();
             int i = 1;
             for (Player player : Bukkit.getOnlinePlayers()) {
@@ -31,4 +45,39 @@ public class ServerApi {
             return table;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * {@code getPlayers()}: the online players, as a shared read-only list.
+     */
+    public static class GetPlayers extends ZeroArgFunction {
+        private final PlayerIndex index;
+
+        public GetPlayers(PlayerIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public LuaValue call() {
+            if (index == null || !Bukkit.isPrimaryThread()) {
+                return LuaValue.error("getPlayers: must be called from the server thread");
+            }
+            return index.getHandles();
+        }
+    }
+
+    /**
+     * {@code getPlayersVersion()}: a number that changes whenever a player joins or quits.
+     */
+    public static class GetPlayersVersion extends ZeroArgFunction {
+        private final PlayerIndex index;
+
+        public GetPlayersVersion(PlayerIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public LuaValue call() {
+            return LuaValue.valueOf(index == null ? 0 : index.getVersion());
+        }
+    }
+}
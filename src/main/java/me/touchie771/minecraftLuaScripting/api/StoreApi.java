@@ -0,0 +1,175 @@
+package me.touchie771.minecraftLuaScripting.api;
+
+import me.touchie771.minecraftLuaScripting.KeyValueStore;
+import me.touchie771.minecraftLuaScripting.LuaValueCodec;
+import me.touchie771.minecraftLuaScripting.ScriptRuntime;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.OneArgFunction;
+import org.luaj.vm2.lib.TwoArgFunction;
+import org.luaj.vm2.lib.ZeroArgFunction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code store} table: persistent values in the script's own namespace of the {@link KeyValueStore}.
+ * Every call works on memory only; the disk is written in the background.
+ */
+public final class StoreApi {
+
+    private StoreApi() {
+    }
+
+    /**
+     * Builds the {@code store} table for a script.
+     */
+    public static LuaTable create(ScriptRuntime runtime, KeyValueStore store) {
+        String name = runtime.getName();
+        String namespace = name.endsWith(".lua") ? name.substring(0, name.length() - 4) : name;
+
+        LuaTable table = new LuaTable();
+        table.set("get", new Get(store, namespace));
+        table.set("set", new Set(store, namespace));
+        table.set("delete", new Delete(store, namespace));
+        table.set("increment", new Increment(store, namespace));
+        table.set("keys", new Keys(store, namespace));
+        table.set("clear", new Clear(store, namespace));
+        return table;
+    }
+
+    private static KeyValueStore check(KeyValueStore store) {
+        if (store == null) {
+            LuaValue.error("store: the script store is unavailable, check the console for errors");
+        }
+        return store;
+    }
+
+    /**
+     * {@code store.get(key[, default])}: returns a copy of the stored value, or {@code default}.
+     */
+    public static final class Get extends TwoArgFunction {
+        private final KeyValueStore store;
+        private final String namespace;
+
+        public Get(KeyValueStore store, String namespace) {
+            this.store = store;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public LuaValue call(LuaValue keyVal, LuaValue defaultVal) {
+            Object value = check(store).get(namespace, keyVal.checkjstring());
+            return value == null ? defaultVal : LuaValueCodec.toLua(value);
+        }
+    }
+
+    /**
+     * {@code store.set(key, value)}: stores a copy of the value; nil deletes the key.
+     */
+    public static final class Set extends TwoArgFunction {
+        private final KeyValueStore store;
+        private final String namespace;
+
+        public Set(KeyValueStore store, String namespace) {
+            this.store = store;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public LuaValue call(LuaValue keyVal, LuaValue value) {
+            String key = keyVal.checkjstring();
+            Object copy;
+            try {
+                copy = LuaValueCodec.toJava(value);
+            } catch (IllegalArgumentException e) {
+                return LuaValue.error("store.set: " + e.getMessage());
+            }
+            check(store).set(namespace, key, copy);
+            return LuaValue.NONE;
+        }
+    }
+
+    public static final class Delete extends OneArgFunction {
+        private final KeyValueStore store;
+        private final String namespace;
+
+        public Delete(KeyValueStore store, String namespace) {
+            this.store = store;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public LuaValue call(LuaValue keyVal) {
+            check(store).delete(namespace, keyVal.checkjstring());
+            return LuaValue.NONE;
+        }
+    }
+
+    /**
+     * {@code store.increment(key[, amount])}: adds to a numeric value, starting from 0, and returns the result.
+     */
+    public static final class Increment extends TwoArgFunction {
+        private final KeyValueStore store;
+        private final String namespace;
+
+        public Increment(KeyValueStore store, String namespace) {
+            this.store = store;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public LuaValue call(LuaValue keyVal, LuaValue amountVal) {
+            String key = keyVal.checkjstring();
+            LuaValue amount = amountVal.isnil() ? LuaValue.ONE : amountVal.checknumber();
+            Object current = check(store).get(namespace, key);
+            if (current != null && !(current instanceof Number)) {
+                return LuaValue.error("store.increment: value of '" + key + "' is not a number");
+            }
+            LuaValue result = (current == null ? LuaValue.ZERO : LuaValueCodec.toLua(current)).add(amount);
+            store.set(namespace, key, LuaValueCodec.toJava(result));
+            return result;
+        }
+    }
+
+    /**
+     * {@code store.keys()}: returns the keys of this script's namespace, sorted.
+     */
+    public static final class Keys extends ZeroArgFunction {
+        private final KeyValueStore store;
+        private final String namespace;
+
+        public Keys(KeyValueStore store, String namespace) {
+            this.store = store;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public LuaValue call() {
+            List<String> keys = new ArrayList<>(check(store).keys(namespace));
+            Collections.sort(keys);
+            LuaTable table = new LuaTable(keys.size(), 0);
+            for (int i = 0; i < keys.size(); i++) {
+                table.rawset(i + 1, LuaValue.valueOf(keys.get(i)));
+            }
+            return table;
+        }
+    }
+
+    public static final class Clear extends ZeroArgFunction {
+        private final KeyValueStore store;
+        private final String namespace;
+
+        public Clear(KeyValueStore store, String namespace) {
+            this.store = store;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public LuaValue call() {
+            check(store).clear(namespace);
+            return LuaValue.NONE;
+        }
+    }
+}
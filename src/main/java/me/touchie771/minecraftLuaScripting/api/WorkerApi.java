@@ -0,0 +1,51 @@
+package me.touchie771.minecraftLuaScripting.api;
+
+import me.touchie771.minecraftLuaScripting.LuaWorkerPool;
+import me.touchie771.minecraftLuaScripting.ScriptRuntime;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+
+import java.util.concurrent.RejectedExecutionException;
+
+public final class WorkerApi {
+
+    private WorkerApi() {
+    }
+
+    /**
+     * {@code runWorker(name, input, fn)}: runs {@code LuaScripts/workers/<name>.lua} on a worker thread
+     * and calls {@code fn(result, err)} on the server thread when it finishes.
+     * Returns the job id, or {@code false, reason} if the job queue is full.
+     */
+    public static final class RunWorker extends VarArgFunction {
+        private final ScriptRuntime runtime;
+        private final LuaWorkerPool pool;
+
+        public RunWorker(ScriptRuntime runtime, LuaWorkerPool pool) {
+            this.runtime = runtime;
+            this.pool = pool;
+        }
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            String workerName = args.arg(1).checkjstring();
+            LuaValue input = args.arg(2);
+            LuaValue callbackVal = args.arg(3);
+            if (!callbackVal.isfunction()) {
+                return LuaValue.error("runWorker(name, input, fn): fn must be a function");
+            }
+            if (pool == null) {
+                return LuaValue.error("runWorker: the worker pool is not running");
+            }
+
+            try {
+                return LuaValue.valueOf(pool.submit(runtime, workerName, input, callbackVal));
+            } catch (IllegalArgumentException e) {
+                return LuaValue.error("runWorker: " + e.getMessage());
+            } catch (RejectedExecutionException e) {
+                return LuaValue.varargsOf(LuaValue.FALSE, LuaValue.valueOf("worker queue is full"));
+            }
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package me.touchie771.minecraftLuaScripting.api;
 
+import me.touchie771.minecraftLuaScripting.BlockEditQueue;
+import me.touchie771.minecraftLuaScripting.MinecraftLuaScripting;
+import me.touchie771.minecraftLuaScripting.ScriptRuntime;
+import me.touchie771.minecraftLuaScripting.bindings.LuaBindings;
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.World;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.VarArgFunction;
-import org.luaj.vm2.lib.jse.CoerceJavaToLua;
+
+import java.util.List;
 
 public class WorldApi {
 
@@ -15,7 +23,7 @@ public class WorldApi {
         public LuaValue call(LuaValue name) {
             World world = Bukkit.getWorld(name.checkjstring());
             if (world == null) return LuaValue.NIL;
-            return CoerceJavaToLua.coerce(world);
+            return LuaBindings.coerce(world);
         }
     }
 
@@ -31,4 +39,105 @@ public class WorldApi {
             return LuaValue.NONE;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * {@code setBlocks(world, area, material[, fn])}: queues a bulk block change that is applied over
+     * several ticks within the configured time budget, then calls {@code fn(stats)} on the server thread.
+     * {@code area} is either a flat {@code {x, y, z, x, y, z, ...}} list or a region
+     * {@code {from = {x, y, z}, to = {x, y, z}}}. Returns the number of blocks queued.
+     */
+    public static class SetBlocks extends VarArgFunction {
+        private final MinecraftLuaScripting plugin;
+        private final ScriptRuntime runtime;
+        private final BlockEditQueue queue;
+
+        public SetBlocks(MinecraftLuaScripting plugin, ScriptRuntime runtime, BlockEditQueue queue) {
+            this.plugin = plugin;
+            this.runtime = runtime;
+            this.queue = queue;
+        }
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            World world = (World) args.checkuserdata(1, World.class);
+            LuaTable area = args.checktable(2);
+            Material material = checkMaterial(args.arg(3));
+            LuaValue callback = args.arg(4);
+            if (!callback.isnil() && !callback.isfunction()) {
+                return LuaValue.error("setBlocks(world, area, material, fn): fn must be a function");
+            }
+            if (queue == null) {
+                return LuaValue.error("setBlocks: block editing is not running");
+            }
+            if (!Bukkit.isPrimaryThread()) {
+                return LuaValue.error("setBlocks: must be called from the server thread");
+            }
+
+            long maxBlocks = queue.getSettings().maxBlocksPerCall();
+            List<BlockEditQueue.ChunkBatch> batches;
+            LuaValue from = area.get("from");
+            if (from.istable()) {
+                LuaValue to = area.get("to");
+                if (!to.istable()) {
+                    return LuaValue.error("setBlocks: a region needs both 'from' and 'to' as {x, y, z}");
+                }
+                int x1 = from.get(1).checkint();
+                int y1 = from.get(2).checkint();
+                int z1 = from.get(3).checkint();
+                int x2 = to.get(1).checkint();
+                int y2 = to.get(2).checkint();
+                int z2 = to.get(3).checkint();
+                long volume = (Math.abs((long) x2 - x1) + 1) * (Math.abs((long) y2 - y1) + 1) * (Math.abs((long) z2 - z1) + 1);
+                if (volume > maxBlocks) {
+                    return LuaValue.error("setBlocks: region has " + volume + " blocks, the limit is " + maxBlocks);
+                }
+                batches = BlockEditQueue.fromRegion(world, x1, y1, z1, x2, y2, z2);
+            } else {
+                int length = area.length();
+                if (length % 3 != 0) {
+                    return LuaValue.error("setBlocks: the coordinate list length must be a multiple of 3");
+                }
+                if (length / 3 > maxBlocks) {
+                    return LuaValue.error("setBlocks: list has " + (length / 3) + " blocks, the limit is " + maxBlocks);
+                }
+                int[] coords = new int[length];
+                for (int i = 0; i < length; i++) {
+                    coords[i] = area.rawget(i + 1).checkint();
+                }
+                batches = BlockEditQueue.fromList(world, coords);
+            }
+
+            long size = BlockEditQueue.size(batches);
+            queue.submit(runtime.getName(), world, material, batches, callback.isnil() ? null : result -> {
+                if (runtime.isClosed()) {
+                    return;
+                }
+                LuaTable stats = new LuaTable();
+                stats.set("blocks", result.blocks());
+                stats.set("changed", result.changed());
+                stats.set("chunks", result.chunks());
+                stats.set("ticks", result.ticks());
+                stats.set("millis", result.millis());
+                try {
+                    runtime.invoke("setBlocks", callback, stats);
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Error in setBlocks callback of " + runtime.getName() + ": " + e);
+                }
+            });
+            return LuaValue.valueOf((double) size);
+        }
+
+        private static Material checkMaterial(LuaValue value) {
+            Material material;
+            if (value.isuserdata(Material.class)) {
+                material = (Material) value.touserdata(Material.class);
+            } else {
+                material = Material.matchMaterial(value.checkjstring());
+            }
+            if (material == null || !material.isBlock()) {
+                throw new LuaError("setBlocks: not a block material: " + value.tojstring());
+            }
+            return material;
+        }
+    }
+}
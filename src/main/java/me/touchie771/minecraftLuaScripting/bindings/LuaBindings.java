@@ -0,0 +1,106 @@
+package me.touchie771.minecraftLuaScripting.bindings;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Vector;
+import org.luaj.vm2.LuaUserdata;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.jse.CoerceJavaToLua;
+
+import java.util.List;
+
+/**
+ * Converts Java objects to Lua values. Objects of the hot Bukkit types listed here are wrapped in userdata
+ * backed by a precomputed accessor table ({@link TypeBinding}); everything else falls back to
+ * LuaJ's reflective {@link CoerceJavaToLua}.
+ */
+public final class LuaBindings {
+
+    /**
+     * Types with generated accessors. An object is bound to the most specific listed type it implements.
+     */
+    private static final List<Class<?>> BOUND_TYPES = List.of(
+            PlayerMoveEvent.class,
+            PlayerInteractEvent.class,
+            PlayerJoinEvent.class,
+            PlayerQuitEvent.class,
+            BlockBreakEvent.class,
+            BlockPlaceEvent.class,
+            EntityDamageByEntityEvent.class,
+            EntityDamageEvent.class,
+            EntityDeathEvent.class,
+            Player.class,
+            LivingEntity.class,
+            Entity.class,
+            CommandSender.class,
+            Location.class,
+            World.class,
+            Block.class,
+            ItemStack.class,
+            Vector.class
+    );
+
+    private static final TypeBinding UNBOUND = new TypeBinding();
+
+    private static final ClassValue<TypeBinding> BINDING_BY_TYPE = new ClassValue<>() {
+        @Override
+        protected TypeBinding computeValue(Class<?> type) {
+            return new TypeBinding(type);
+        }
+    };
+
+    private static final ClassValue<TypeBinding> BINDING_BY_RUNTIME_CLASS = new ClassValue<>() {
+        @Override
+        protected TypeBinding computeValue(Class<?> runtimeClass) {
+            Class<?> best = null;
+            for (Class<?> candidate : BOUND_TYPES) {
+                if (candidate.isAssignableFrom(runtimeClass) && (best == null || best.isAssignableFrom(candidate))) {
+                    best = candidate;
+                }
+            }
+            return best == null ? UNBOUND : BINDING_BY_TYPE.get(best);
+        }
+    };
+
+    private LuaBindings() {
+    }
+
+    /**
+     * Converts a Java object to a Lua value, using a generated binding when one exists for its type.
+     *
+     * @param object The object to convert, may be null
+     * @return The Lua value, NIL for null
+     */
+    public static LuaValue coerce(Object object) {
+        if (object == null) {
+            return LuaValue.NIL;
+        }
+        TypeBinding binding = BINDING_BY_RUNTIME_CLASS.get(object.getClass());
+        if (binding == UNBOUND) {
+            return CoerceJavaToLua.coerce(object);
+        }
+        return new LuaUserdata(object, binding.metatable());
+    }
+
+    /**
+     * @return true if objects of this runtime class are converted through a generated binding
+     */
+    public static boolean isBound(Class<?> runtimeClass) {
+        return BINDING_BY_RUNTIME_CLASS.get(runtimeClass) != UNBOUND;
+    }
+}
@@ -0,0 +1,244 @@
+package me.touchie771.minecraftLuaScripting.bindings;
+
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.jse.CoerceLuaToJava;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The public overloads of one method name, grouped by arity. When several overloads take the same number of
+ * arguments, the best fit for a combination of Lua argument types is chosen once and cached.
+ * Used for static methods ({@link StaticBinding}) and overloaded instance methods ({@link TypeBinding}).
+ */
+final class Overloads {
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final Overload[][] byArity;
+    private final Map<Signature, Overload> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * @param methods The methods of one name; varargs methods and methods the public lookup cannot reach are left out
+     */
+    Overloads(List<Method> methods) {
+        int maxArity = 0;
+        for (Method method : methods) {
+            maxArity = Math.max(maxArity, method.getParameterCount());
+        }
+        List<List<Overload>> grouped = new ArrayList<>();
+        for (int i = 0; i <= maxArity; i++) {
+            grouped.add(new ArrayList<>());
+        }
+        for (Method method : methods) {
+            if (method.isVarArgs()) {
+                continue;
+            }
+            Overload overload = Overload.create(method);
+            if (overload != null) {
+                grouped.get(method.getParameterCount()).add(overload);
+            }
+        }
+        byArity = new Overload[maxArity + 1][];
+        for (int i = 0; i <= maxArity; i++) {
+            byArity[i] = grouped.get(i).toArray(new Overload[0]);
+        }
+    }
+
+    /**
+     * @return true if no overload could be bound
+     */
+    boolean isEmpty() {
+        for (Overload[] candidates : byArity) {
+            if (candidates.length > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param args The call arguments
+     * @param first Index of the first Java argument in {@code args}, 2 when the receiver comes first
+     * @return The overload to call, or null if none fits
+     */
+    Overload find(Varargs args, int first) {
+        int count = Math.max(0, args.narg() - first + 1);
+        if (count >= byArity.length) {
+            return null;
+        }
+        Overload[] candidates = byArity[count];
+        if (candidates.length == 1) {
+            return candidates[0].score(args, first) != NO_MATCH ? candidates[0] : null;
+        }
+        if (candidates.length == 0) {
+            return null;
+        }
+        Overload overload = resolved.computeIfAbsent(Signature.of(args, first), signature -> best(candidates, args, first));
+        return overload == Overload.NONE ? null : overload;
+    }
+
+    private static Overload best(Overload[] candidates, Varargs args, int first) {
+        Overload best = Overload.NONE;
+        int bestScore = NO_MATCH;
+        for (Overload candidate : candidates) {
+            int score = candidate.score(args, first);
+            if (score < bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * One method behind a spreading {@link MethodHandle}; instance methods take the receiver as the first element.
+     */
+    static final class Overload {
+        static final Overload NONE = new Overload(new Class<?>[0], void.class, false, null);
+
+        private final Class<?>[] parameterTypes;
+        private final Class<?> returnType;
+        private final boolean instance;
+        private final MethodHandle handle;
+
+        private Overload(Class<?>[] parameterTypes, Class<?> returnType, boolean instance, MethodHandle handle) {
+            this.parameterTypes = parameterTypes;
+            this.returnType = returnType;
+            this.instance = instance;
+            this.handle = handle;
+        }
+
+        static Overload create(Method method) {
+            boolean instance = !Modifier.isStatic(method.getModifiers());
+            try {
+                MethodHandle handle = MethodHandles.publicLookup().unreflect(method)
+                        .asSpreader(Object[].class, method.getParameterCount() + (instance ? 1 : 0))
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                return new Overload(method.getParameterTypes(), method.getReturnType(), instance, handle);
+            } catch (IllegalAccessException | RuntimeException e) {
+                // Not reachable through the public lookup.
+                return null;
+            }
+        }
+
+        /**
+         * @return How well the arguments fit, lower is better, or {@link #NO_MATCH}
+         */
+        int score(Varargs args, int first) {
+            int total = 0;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                int score = score(args.arg(first + i), parameterTypes[i]);
+                if (score == NO_MATCH) {
+                    return NO_MATCH;
+                }
+                total += score;
+            }
+            return total;
+        }
+
+        private static int score(LuaValue value, Class<?> parameter) {
+            if (LuaValue.class.isAssignableFrom(parameter)) {
+                return parameter.isInstance(value) ? 0 : NO_MATCH;
+            }
+            switch (value.type()) {
+                case LuaValue.TNIL:
+                    return parameter.isPrimitive() ? NO_MATCH : 1;
+                case LuaValue.TBOOLEAN:
+                    return parameter == boolean.class || parameter == Boolean.class ? 0
+                            : parameter == Object.class ? 4 : NO_MATCH;
+                case LuaValue.TNUMBER:
+                    if (value.isinttype()) {
+                        if (parameter == int.class || parameter == Integer.class) return 0;
+                        if (parameter == long.class || parameter == Long.class) return 1;
+                        if (parameter == double.class || parameter == Double.class) return 2;
+                        if (parameter == float.class || parameter == Float.class
+                                || parameter == short.class || parameter == Short.class
+                                || parameter == byte.class || parameter == Byte.class) return 3;
+                    } else {
+                        if (parameter == double.class || parameter == Double.class) return 0;
+                        if (parameter == float.class || parameter == Float.class) return 1;
+                    }
+                    if (parameter == Number.class || parameter == Object.class) return 4;
+                    return parameter == String.class ? 6 : NO_MATCH;
+                case LuaValue.TSTRING:
+                    if (parameter == String.class || parameter == CharSequence.class) return 0;
+                    return parameter == Object.class ? 4 : NO_MATCH;
+                case LuaValue.TUSERDATA:
+                    Object object = value.touserdata();
+                    if (parameter.isInstance(object)) {
+                        return object.getClass() == parameter ? 0 : 1;
+                    }
+                    return NO_MATCH;
+                default:
+                    return NO_MATCH;
+            }
+        }
+
+        /**
+         * @param self The receiver, ignored for static methods
+         */
+        Varargs call(Object self, Varargs args, int first) {
+            int offset = instance ? 1 : 0;
+            Object[] arguments = new Object[parameterTypes.length + offset];
+            if (instance) {
+                arguments[0] = self;
+            }
+            for (int i = 0; i < parameterTypes.length; i++) {
+                arguments[i + offset] = CoerceLuaToJava.coerce(args.arg(first + i), parameterTypes[i]);
+            }
+            Object result;
+            try {
+                result = (Object) handle.invokeExact(arguments);
+            } catch (LuaError e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new LuaError(t);
+            }
+            return TypeBinding.toLua(returnType, result);
+        }
+    }
+
+    /**
+     * The argument types of a call, used as the overload cache key.
+     * Numbers are split into integers and floats; userdata is keyed by its Java class.
+     */
+    private record Signature(Object[] parts) {
+
+        static Signature of(Varargs args, int first) {
+            Object[] parts = new Object[Math.max(0, args.narg() - first + 1)];
+            for (int i = 0; i < parts.length; i++) {
+                LuaValue value = args.arg(first + i);
+                int type = value.type();
+                if (type == LuaValue.TUSERDATA) {
+                    parts[i] = value.touserdata().getClass();
+                } else if (type == LuaValue.TNUMBER && !value.isinttype()) {
+                    parts[i] = -1;
+                } else {
+                    parts[i] = type;
+                }
+            }
+            return new Signature(parts);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Signature signature && Arrays.equals(parts, signature.parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(parts);
+        }
+    }
+}
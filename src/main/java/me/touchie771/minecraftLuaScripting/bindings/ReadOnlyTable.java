@@ -0,0 +1,79 @@
+package me.touchie771.minecraftLuaScripting.bindings;
+
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Lua table that scripts can read but not change, so one instance can be handed to every script.
+ */
+public final class ReadOnlyTable extends LuaTable {
+
+    private final boolean sealed;
+
+    public ReadOnlyTable(List<LuaValue> values) {
+        super(values.size(), 0);
+        for (int i = 0; i < values.size(); i++) {
+            super.rawset(i + 1, values.get(i));
+        }
+        sealed = true;
+    }
+
+    /**
+     * A read-only table of named fields, with a metatable for lookups of anything else.
+     */
+    public ReadOnlyTable(Map<String, LuaValue> fields, LuaTable metatable) {
+        super(0, fields.size());
+        for (Map.Entry<String, LuaValue> field : fields.entrySet()) {
+            super.rawset(LuaValue.valueOf(field.getKey()), field.getValue());
+        }
+        if (metatable != null) {
+            super.setmetatable(metatable);
+        }
+        sealed = true;
+    }
+
+    private void checkWritable() {
+        if (sealed) {
+            error("attempt to modify a read-only table");
+        }
+    }
+
+    @Override
+    public void rawset(int key, LuaValue value) {
+        checkWritable();
+        super.rawset(key, value);
+    }
+
+    @Override
+    public void rawset(LuaValue key, LuaValue value) {
+        checkWritable();
+        super.rawset(key, value);
+    }
+
+    @Override
+    public void insert(int pos, LuaValue value) {
+        checkWritable();
+        super.insert(pos, value);
+    }
+
+    @Override
+    public LuaValue remove(int pos) {
+        checkWritable();
+        return super.remove(pos);
+    }
+
+    @Override
+    public void sort(LuaValue comparator) {
+        checkWritable();
+        super.sort(comparator);
+    }
+
+    @Override
+    public LuaValue setmetatable(LuaValue metatable) {
+        checkWritable();
+        return super.setmetatable(metatable);
+    }
+}
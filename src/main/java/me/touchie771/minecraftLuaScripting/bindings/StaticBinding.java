@@ -0,0 +1,179 @@
+package me.touchie771.minecraftLuaScripting.bindings;
+
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.TwoArgFunction;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.CoerceJavaToLua;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Lua view of a Java class used for static access, e.g. the {@code Material} global or the result of
+ * {@code Class(name)}. Enum constants and static final fields are read once into a shared read-only table,
+ * and static methods are called through {@link MethodHandle}s, with the overload chosen for a combination
+ * of argument types cached after the first call. Both {@code Material.valueOf("STONE")} and
+ * {@code Material:valueOf("STONE")} work, and {@code Material.class} is the {@link Class} object itself.
+ * Anything else (constructors, mutable fields, varargs methods,
+ * methods of {@link Class} itself) goes through LuaJ's reflective coercion as before.
+ */
+public final class StaticBinding {
+
+    private static final ClassValue<LuaTable> BINDINGS = new ClassValue<>() {
+        @Override
+        protected LuaTable computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private StaticBinding() {
+    }
+
+    /**
+     * @return The shared, read-only Lua table for a class
+     */
+    public static LuaTable of(Class<?> type) {
+        return BINDINGS.get(type);
+    }
+
+    private static LuaTable create(Class<?> type) {
+        LuaValue reflective = CoerceJavaToLua.coerce(type);
+        Map<String, LuaValue> fields = new LinkedHashMap<>();
+
+        for (Field field : type.getFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)) {
+                try {
+                    fields.put(field.getName(), CoerceJavaToLua.coerce(field.get(null)));
+                } catch (IllegalAccessException | RuntimeException e) {
+                    // Left to the reflective lookup.
+                }
+            }
+        }
+
+        // "class" can never be a Java member name; it hands the Class object itself to Java methods.
+        fields.put("class", reflective);
+
+        Map<String, List<Method>> methods = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) && !method.isBridge() && !method.isSynthetic()) {
+                methods.computeIfAbsent(method.getName(), k -> new ArrayList<>()).add(method);
+            }
+        }
+        for (Map.Entry<String, List<Method>> entry : methods.entrySet()) {
+            if (!fields.containsKey(entry.getKey())) {
+                fields.put(entry.getKey(), new StaticMethod(type, entry.getKey(), entry.getValue(), reflective));
+            }
+        }
+
+        LuaTable metatable = new LuaTable();
+        metatable.rawset(LuaValue.INDEX, new Fallback(reflective));
+        metatable.rawset(LuaValue.CALL, new Call(reflective));
+        // Shared by every script: getmetatable must not hand out a writable table.
+        metatable.rawset(LuaValue.METATABLE, TypeBinding.METATABLE_GUARD);
+        return new ReadOnlyTable(fields, metatable);
+    }
+
+    /**
+     * __index for names without a precomputed entry: LuaJ's reflective class lookup.
+     * Methods found there are wrapped so they can be called with either dot or colon syntax.
+     */
+    private static final class Fallback extends TwoArgFunction {
+        private final LuaValue reflective;
+        private final Map<LuaValue, LuaValue> wrapped = new ConcurrentHashMap<>();
+
+        Fallback(LuaValue reflective) {
+            this.reflective = reflective;
+        }
+
+        @Override
+        public LuaValue call(LuaValue self, LuaValue key) {
+            LuaValue value = reflective.get(key);
+            if (!value.isfunction() || key.tojstring().equals("new")) {
+                return value;
+            }
+            return wrapped.computeIfAbsent(key, k -> new ReflectiveCall(self, reflective, value));
+        }
+    }
+
+    /**
+     * __call: calling the class table behaves like calling LuaJ's class value.
+     */
+    private static final class Call extends VarArgFunction {
+        private final LuaValue reflective;
+
+        Call(LuaValue reflective) {
+            this.reflective = reflective;
+        }
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            return reflective.invoke(args.subargs(2));
+        }
+    }
+
+    /**
+     * Calls a reflective LuaJ method with the class as its receiver, whichever syntax the script used.
+     */
+    private static final class ReflectiveCall extends VarArgFunction {
+        private final LuaValue binding;
+        private final LuaValue reflective;
+        private final LuaValue method;
+
+        ReflectiveCall(LuaValue binding, LuaValue reflective, LuaValue method) {
+            this.binding = binding;
+            this.reflective = reflective;
+            this.method = method;
+        }
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            Varargs rest = args.arg1().raweq(binding) || args.arg1().raweq(reflective) ? args.subargs(2) : args;
+            return method.invoke(LuaValue.varargsOf(reflective, rest));
+        }
+    }
+
+    /**
+     * All public static overloads of one method name.
+     */
+    private static final class StaticMethod extends VarArgFunction {
+        private final Class<?> type;
+        private final String name;
+        private final LuaValue reflective;
+        private final Overloads overloads;
+
+        StaticMethod(Class<?> type, String name, List<Method> methods, LuaValue reflective) {
+            this.type = type;
+            this.name = name;
+            this.reflective = reflective;
+            this.overloads = new Overloads(methods);
+        }
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            // Colon syntax passes the class table first.
+            int first = args.narg() > 0 && args.arg1().raweq(of(type)) ? 2 : 1;
+            Overloads.Overload overload = overloads.find(args, first);
+            if (overload == null) {
+                // No handle fits, e.g. a varargs method: let LuaJ try.
+                return reflective.get(name).invoke(LuaValue.varargsOf(reflective, args.subargs(first)));
+            }
+            return overload.call(null, args, first);
+        }
+
+        @Override
+        public String tojstring() {
+            return "static " + type.getSimpleName() + "." + name;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package me.touchie771.minecraftLuaScripting.bindings;
+
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaInteger;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.ThreeArgFunction;
+import org.luaj.vm2.lib.TwoArgFunction;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.CoerceJavaToLua;
+import org.luaj.vm2.lib.jse.CoerceLuaToJava;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed Lua accessors for one Java type. Every public method with up to {@value #MAX_ARITY} parameters
+ * and no overloads gets a {@link MethodHandle}-backed function in the accessor table; overloaded and wider
+ * methods are dispatched through {@link Overloads}. Anything else (fields, varargs methods, methods of the
+ * implementation class) is resolved through LuaJ's reflective lookup once per class and name.
+ * The metatable is shared by every script, so {@code getmetatable} returns a guard string instead.
+ */
+final class TypeBinding {
+
+    private static final int MAX_ARITY = 3;
+    /**
+     * What {@code getmetatable} returns for values whose metatable is shared by every script.
+     */
+    static final LuaValue METATABLE_GUARD = LuaValue.valueOf("locked");
+
+    private final LuaTable metatable = new LuaTable();
+
+    /**
+     * The sentinel binding for types that are not bound.
+     */
+    TypeBinding() {
+    }
+
+    TypeBinding(Class<?> type) {
+        LuaTable accessors = new LuaTable();
+        for (Map.Entry<String, List<Method>> entry : bindableMethods(type).entrySet()) {
+            LuaValue accessor = createAccessor(type, entry.getKey(), entry.getValue());
+            if (accessor != null) {
+                accessors.rawset(entry.getKey(), accessor);
+            }
+        }
+
+        metatable.rawset(LuaValue.INDEX, new Index(accessors));
+        metatable.rawset(LuaValue.NEWINDEX, new NewIndex());
+        metatable.rawset(LuaValue.METATABLE, METATABLE_GUARD);
+    }
+
+    LuaTable metatable() {
+        return metatable;
+    }
+
+    /**
+     * Groups the instance methods by name, one method per parameter list.
+     * Covariant overrides inherited from super-interfaces collapse to the most specific return type.
+     */
+    private static Map<String, List<Method>> bindableMethods(Class<?> type) {
+        Map<String, List<Method>> byName = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.isSynthetic()) {
+                continue;
+            }
+            List<Method> methods = byName.computeIfAbsent(method.getName(), k -> new ArrayList<>(1));
+            boolean replaced = false;
+            for (int i = 0; i < methods.size(); i++) {
+                Method other = methods.get(i);
+                if (Arrays.equals(other.getParameterTypes(), method.getParameterTypes())) {
+                    if (other.getReturnType().isAssignableFrom(method.getReturnType())) {
+                        methods.set(i, method);
+                    }
+                    replaced = true;
+                    break;
+                }
+            }
+            if (!replaced) {
+                methods.add(method);
+            }
+        }
+        return byName;
+    }
+
+    private static LuaValue createAccessor(Class<?> type, String name, List<Method> methods) {
+        // Varargs methods are left to the reflective fallback of the overloaded accessor.
+        if (methods.size() == 1 && !methods.get(0).isVarArgs() && methods.get(0).getParameterCount() <= MAX_ARITY) {
+            LuaValue accessor = createAccessor(type, methods.get(0));
+            if (accessor != null) {
+                return accessor;
+            }
+        }
+        Overloads overloads = new Overloads(methods);
+        return overloads.isEmpty() ? null : new OverloadedAccessor(type, name, overloads);
+    }
+
+    private static LuaValue createAccessor(Class<?> type, Method method) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+            MethodHandle generic = handle.asType(MethodType.genericMethodType(method.getParameterCount() + 1));
+            return new Accessor(type, method, generic);
+        } catch (IllegalAccessException | RuntimeException e) {
+            // Not reachable through the public lookup, e.g. a method of a non-public class.
+            return null;
+        }
+    }
+
+    /**
+     * __index: generated accessors first, LuaJ's reflective member lookup for everything else.
+     * Methods found reflectively are kept per runtime class, so later lookups skip the wrapper and the search.
+     */
+    private static final class Index extends TwoArgFunction {
+        private static final ClassValue<Map<LuaValue, LuaValue>> REFLECTIVE_METHODS = new ClassValue<>() {
+            @Override
+            protected Map<LuaValue, LuaValue> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+        private final LuaTable accessors;
+
+        Index(LuaTable accessors) {
+            this.accessors = accessors;
+        }
+
+        @Override
+        public LuaValue call(LuaValue self, LuaValue key) {
+            LuaValue accessor = accessors.rawget(key);
+            if (!accessor.isnil()) {
+                return accessor;
+            }
+            Object object = self.touserdata();
+            Map<LuaValue, LuaValue> methods = REFLECTIVE_METHODS.get(object.getClass());
+            LuaValue method = methods.get(key);
+            if (method != null) {
+                return method;
+            }
+            LuaValue member = CoerceJavaToLua.coerce(object).get(key);
+            if (member.isfunction()) {
+                // LuaJ's methods take the receiver as their first argument, so they work for any instance.
+                methods.put(key, member);
+            }
+            return member;
+        }
+    }
+
+    /**
+     * __newindex: public field writes go through LuaJ's reflective coercion as before.
+     */
+    private static final class NewIndex extends ThreeArgFunction {
+        @Override
+        public LuaValue call(LuaValue self, LuaValue key, LuaValue value) {
+            CoerceJavaToLua.coerce(self.touserdata()).set(key, value);
+            return LuaValue.NONE;
+        }
+    }
+
+    /**
+     * A method call through a cached, generically typed {@link MethodHandle}.
+     */
+    private static final class Accessor extends VarArgFunction {
+        private final Class<?> type;
+        private final String name;
+        private final Class<?>[] parameterTypes;
+        private final Class<?> returnType;
+        private final MethodHandle handle;
+
+        Accessor(Class<?> type, Method method, MethodHandle handle) {
+            this.type = type;
+            this.name = method.getName();
+            this.parameterTypes = method.getParameterTypes();
+            this.returnType = method.getReturnType();
+            this.handle = handle;
+        }
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            Object self = args.checkuserdata(1, type);
+            Object result;
+            try {
+                result = switch (parameterTypes.length) {
+                    case 0 -> (Object) handle.invokeExact(self);
+                    case 1 -> (Object) handle.invokeExact(self, argument(args, 0));
+                    case 2 -> (Object) handle.invokeExact(self, argument(args, 0), argument(args, 1));
+                    default -> (Object) handle.invokeExact(self, argument(args, 0), argument(args, 1), argument(args, 2));
+                };
+            } catch (LuaError e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new LuaError(t);
+            }
+            return toLua(returnType, result);
+        }
+
+        private Object argument(Varargs args, int index) {
+            return CoerceLuaToJava.coerce(args.arg(index + 2), parameterTypes[index]);
+        }
+
+        @Override
+        public String tojstring() {
+            return "accessor " + type.getSimpleName() + "." + name;
+        }
+    }
+
+    /**
+     * A call to an overloaded or wide method, with the overload picked by {@link Overloads}.
+     */
+    private static final class OverloadedAccessor extends VarArgFunction {
+        private final Class<?> type;
+        private final String name;
+        private final Overloads overloads;
+
+        OverloadedAccessor(Class<?> type, String name, Overloads overloads) {
+            this.type = type;
+            this.name = name;
+            this.overloads = overloads;
+        }
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            Object self = args.checkuserdata(1, type);
+            Overloads.Overload overload = overloads.find(args, 2);
+            if (overload == null) {
+                // No handle fits the arguments: let LuaJ try its own coercions.
+                LuaValue reflective = CoerceJavaToLua.coerce(self);
+                return reflective.get(name).invoke(LuaValue.varargsOf(reflective, args.subargs(2)));
+            }
+            return overload.call(self, args, 2);
+        }
+
+        @Override
+        public String tojstring() {
+            return "accessor " + type.getSimpleName() + "." + name;
+        }
+    }
+
+    /**
+     * Converts a method result to Lua without going through reflective coercion for primitives and strings.
+     */
+    static LuaValue toLua(Class<?> returnType, Object result) {
+        if (returnType == void.class) {
+            return LuaValue.NONE;
+        }
+        if (result == null) {
+            return LuaValue.NIL;
+        }
+        if (returnType == boolean.class) {
+            return LuaValue.valueOf((Boolean) result);
+        }
+        if (returnType == int.class || returnType == short.class || returnType == byte.class) {
+            return LuaValue.valueOf(((Number) result).intValue());
+        }
+        if (returnType == long.class) {
+            return LuaInteger.valueOf((Long) result);
+        }
+        if (returnType == double.class || returnType == float.class) {
+            return LuaValue.valueOf(((Number) result).doubleValue());
+        }
+        if (returnType == char.class) {
+            return LuaValue.valueOf((Character) result);
+        }
+        if (result instanceof String string) {
+            return LuaValue.valueOf(string);
+        }
+        return LuaBindings.coerce(result);
+    }
+}
@@ -1,28 +1,36 @@
 package me.touchie771.minecraftLuaScripting.commandHandlers;
 
 import me.touchie771.minecraftLuaScripting.MinecraftLuaScripting;
+import me.touchie771.minecraftLuaScripting.PlayerIndex;
+import me.touchie771.minecraftLuaScripting.ScriptExecutor;
+import me.touchie771.minecraftLuaScripting.ScriptRuntime;
+import me.touchie771.minecraftLuaScripting.bindings.LuaBindings;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandMap;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.SimplePluginManager;
 import org.jetbrains.annotations.NotNull;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.lib.ThreeArgFunction;
-import org.luaj.vm2.lib.jse.CoerceJavaToLua;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class CommandRegister {
 
-    private static final Map<String, Set<String>> LUA_COMMANDS_BY_PLUGIN = new HashMap<>();
+    private static final Map<String, Set<String>> LUA_COMMANDS_BY_SCRIPT = new HashMap<>();
+    // The server's command map never changes, so the reflective lookups run once.
+    private static CommandMap resolvedCommandMap;
+    private static Map<String, Command> resolvedKnownCommands;
 
     private final MinecraftLuaScripting plugin;
     private CommandMap commandMap;
@@ -33,17 +41,35 @@ public class CommandRegister {
     }
 
     private void setupCommandMap() {
+        this.commandMap = commandMap(plugin);
+    }
+
+    /**
+     * @return The server's command map, resolved on first use, or null if it cannot be found
+     */
+    private static CommandMap commandMap(MinecraftLuaScripting plugin) {
+        if (resolvedCommandMap != null) {
+            return resolvedCommandMap;
+        }
         try {
-            this.commandMap = resolveCommandMap();
-            if (this.commandMap == null) {
+            resolvedCommandMap = resolveCommandMap();
+            if (resolvedCommandMap == null) {
                 plugin.getLogger().severe("Failed to get CommandMap: resolved to null");
             }
         } catch (Exception e) {
             plugin.getLogger().severe("Failed to get CommandMap: " + e);
         }
+        return resolvedCommandMap;
+    }
+
+    private static Map<String, Command> knownCommands(CommandMap commandMap) {
+        if (resolvedKnownCommands == null) {
+            resolvedKnownCommands = resolveKnownCommands(commandMap);
+        }
+        return resolvedKnownCommands;
     }
 
-    private CommandMap resolveCommandMap() {
+    private static CommandMap resolveCommandMap() {
         // 1) Try CraftServer#getCommandMap() (public on CraftBukkit/Paper)
         try {
             Method getCommandMap = Bukkit.getServer().getClass().getMethod("getCommandMap");
@@ -101,21 +127,43 @@ public class CommandRegister {
         return null;
     }
 
+    /**
+     * @return The number of commands currently registered by Lua scripts
+     */
+    public static int getLuaCommandCount() {
+        int count = 0;
+        for (Set<String> names : LUA_COMMANDS_BY_SCRIPT.values()) {
+            count += names.size();
+        }
+        return count;
+    }
+
+    /**
+     * Unregisters every Lua command registered by any script.
+     */
     public static void clearLuaCommands(MinecraftLuaScripting plugin) {
+        for (String scriptName : Set.copyOf(LUA_COMMANDS_BY_SCRIPT.keySet())) {
+            clearLuaCommands(plugin, scriptName);
+        }
+    }
+
+    /**
+     * Unregisters the Lua commands registered by a single script.
+     */
+    public static void clearLuaCommands(MinecraftLuaScripting plugin, String scriptName) {
         String pluginKey = plugin.getName();
-        Set<String> names = LUA_COMMANDS_BY_PLUGIN.remove(pluginKey);
+        Set<String> names = LUA_COMMANDS_BY_SCRIPT.remove(scriptName);
         if (names == null || names.isEmpty()) {
             return;
         }
 
-        CommandRegister resolver = new CommandRegister(plugin);
-        CommandMap cm = resolver.commandMap;
+        CommandMap cm = commandMap(plugin);
         if (cm == null) {
             plugin.getLogger().warning("Cannot clear Lua commands: CommandMap not initialized");
             return;
         }
 
-        Map<String, Command> knownCommands = resolveKnownCommands(cm);
+        Map<String, Command> knownCommands = knownCommands(cm);
         for (String name : names) {
             try {
                 unregisterCommand(cm, knownCommands, pluginKey, name);
@@ -164,8 +212,25 @@ public class CommandRegister {
     }
 
     public class Register extends ThreeArgFunction {
+        private final ScriptRuntime runtime;
+
+        public Register(ScriptRuntime runtime) {
+            this.runtime = runtime;
+        }
+
+        /**
+         * {@code registerCommand(name, permission, fn)} or {@code registerCommand(spec)}, where spec is a table
+         * with a {@code name} and the fields compiled by {@link CommandTree}.
+         */
         @Override
         public LuaValue call(LuaValue nameVal, LuaValue permissionVal, LuaValue callbackVal) {
+            if (nameVal.istable()) {
+                LuaTable spec = nameVal.checktable();
+                String commandName = spec.get("name").checkjstring();
+                CommandTree tree = CommandTree.compile(commandName, spec);
+                return register(new LuaCommand(commandName, tree.getPermission(), null, tree, runtime));
+            }
+
             String commandName = nameVal.checkjstring();
             
             String permission = null;
@@ -177,18 +242,24 @@ public class CommandRegister {
                 return LuaValue.error("Callback must be a function");
             }
 
+            return register(new LuaCommand(commandName, permission, callbackVal, null, runtime));
+        }
+
+        private LuaValue register(LuaCommand command) {
+            String commandName = command.getName();
+            String permission = command.getPermission();
             if (commandMap == null) {
                 return LuaValue.error("CommandMap not initialized");
             }
 
-            // If a previous Lua reload already registered this name, replace it.
-            Map<String, Command> knownCommands = resolveKnownCommands(commandMap);
+            // If a previous Lua reload (or another script) already registered this name, replace it.
+            Map<String, Command> knownCommands = knownCommands(commandMap);
             unregisterCommand(commandMap, knownCommands, plugin.getName(), commandName);
+            LUA_COMMANDS_BY_SCRIPT.values().forEach(names -> names.remove(commandName));
 
-            LuaCommand command = new LuaCommand(commandName, permission, callbackVal);
             commandMap.register(plugin.getName(), command);
-            LUA_COMMANDS_BY_PLUGIN
-                    .computeIfAbsent(plugin.getName(), k -> new HashSet<>())
+            LUA_COMMANDS_BY_SCRIPT
+                    .computeIfAbsent(runtime.getName(), k -> new HashSet<>())
                     .add(commandName);
             plugin.getLogger().info("Registered command: " + commandName + " with permission: " + permission);
             
@@ -198,10 +269,14 @@ public class CommandRegister {
 
     private class LuaCommand extends Command {
         private final LuaValue callback;
+        private final CommandTree tree;
+        private final ScriptRuntime runtime;
 
-        protected LuaCommand(String name, String permission, LuaValue callback) {
+        protected LuaCommand(String name, String permission, LuaValue callback, CommandTree tree, ScriptRuntime runtime) {
             super(name);
             this.callback = callback;
+            this.tree = tree;
+            this.runtime = runtime;
             if (permission != null && !permission.isEmpty()) {
                 setPermission(permission);
             }
@@ -214,7 +289,7 @@ public class CommandRegister {
 
         @Override
         public @NotNull String getUsage() {
-            return "/" + getName();
+            return tree != null ? tree.getUsage() : "/" + getName();
         }
 
         @Override
@@ -236,18 +311,45 @@ public class CommandRegister {
         @Override
         public boolean execute(@NotNull CommandSender sender, @NotNull String commandLabel, @NotNull String[] args) {
             try {
-                LuaValue senderVal = CoerceJavaToLua.coerce(sender);
-                LuaTable argsTable = new LuaTable();
+                if (tree != null) {
+                    CommandTree.Invocation invocation = tree.parse(sender, args);
+                    if (invocation != null) {
+                        runtime.invoke(invocation.path(), invocation.handler(), LuaValue.varargsOf(senderValue(sender), invocation.args()));
+                    }
+                    return true;
+                }
+                LuaTable argsTable = new LuaTable(args.length, 0);
                 for (int i = 0; i < args.length; i++) {
-                    argsTable.set(i + 1, LuaValue.valueOf(args[i]));
+                    argsTable.rawset(i + 1, LuaValue.valueOf(args[i]));
                 }
-                LuaValue argsVal = argsTable;
-                callback.call(senderVal, argsVal);
+                runtime.invoke("/" + getName(), callback, LuaValue.varargsOf(senderValue(sender), argsTable));
             } catch (Exception e) {
                 sender.sendMessage("§cError executing Lua command: " + e.getMessage());
-                plugin.getLogger().severe("Error executing Lua command '" + getName() + "': " + e.getMessage());
+                plugin.getLogger().severe("Error executing Lua command '" + getName() + "' from " + runtime.getName() + ": " + e.getMessage());
             }
             return true;
         }
+
+        @Override
+        public @NotNull List<String> tabComplete(@NotNull CommandSender sender, @NotNull String alias, @NotNull String[] args) {
+            if (tree != null) {
+                return tree.complete(sender, args);
+            }
+            return super.tabComplete(sender, alias, args);
+        }
+
+        /**
+         * Players are handed to Lua as their indexed handle instead of a fresh coercion.
+         */
+        private LuaValue senderValue(CommandSender sender) {
+            PlayerIndex index = ScriptExecutor.getPlayerIndex();
+            if (index != null && sender instanceof Player player) {
+                LuaValue handle = index.get(player);
+                if (handle != null) {
+                    return handle;
+                }
+            }
+            return LuaBindings.coerce(sender);
+        }
     }
 }
\ No newline at end of file
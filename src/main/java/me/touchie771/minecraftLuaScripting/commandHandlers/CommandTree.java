@@ -0,0 +1,455 @@
+package me.touchie771.minecraftLuaScripting.commandHandlers;
+
+import me.touchie771.minecraftLuaScripting.PlayerIndex;
+import me.touchie771.minecraftLuaScripting.ScriptExecutor;
+import me.touchie771.minecraftLuaScripting.bindings.LuaBindings;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A Lua command spec compiled into a dispatch tree. Subcommands are matched and arguments are parsed
+ * and validated in Java, so the Lua handler only runs for well-formed input and receives typed values.
+ * The same tree answers tab completion from candidate lists built when the spec is compiled.
+ */
+final class CommandTree {
+
+    private static final List<String> MATERIAL_NAMES = sortedLowerCase(
+            Arrays.stream(Material.values()).filter(material -> !material.isLegacy()).map(Material::name).toList());
+    private static final List<String> BOOLEAN_NAMES = List.of("false", "true");
+
+    private final Node root;
+
+    private CommandTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Compiles a command spec table.
+     *
+     * @throws LuaError If the spec is malformed
+     */
+    static CommandTree compile(String name, LuaTable spec) {
+        return new CommandTree(compileNode("/" + name, spec));
+    }
+
+    private static Node compileNode(String path, LuaTable spec) {
+        LuaValue run = spec.get("run");
+        if (!run.isnil() && !run.isfunction()) {
+            throw new LuaError(path + ": 'run' must be a function");
+        }
+        LuaValue permission = spec.get("permission");
+        Node node = new Node(path, permission.isnil() ? null : permission.checkjstring(), run.isnil() ? null : run);
+
+        LuaValue args = spec.get("args");
+        if (!args.isnil()) {
+            LuaTable argsTable = args.checktable();
+            for (int i = 1, n = argsTable.length(); i <= n; i++) {
+                Argument argument = compileArgument(path, argsTable.get(i).checktable());
+                if (!node.arguments.isEmpty()) {
+                    Argument previous = node.arguments.get(node.arguments.size() - 1);
+                    if (previous.type == ArgumentType.TEXT) {
+                        throw new LuaError(path + ": a 'text' argument must be the last one");
+                    }
+                    if (previous.optional && !argument.optional) {
+                        throw new LuaError(path + ": required argument '" + argument.name + "' follows an optional one");
+                    }
+                }
+                node.arguments.add(argument);
+            }
+        }
+
+        LuaValue subcommands = spec.get("subcommands");
+        if (!subcommands.isnil()) {
+            LuaTable table = subcommands.checktable();
+            LuaValue key = LuaValue.NIL;
+            while (true) {
+                Varargs next = table.next(key);
+                if ((key = next.arg1()).isnil()) {
+                    break;
+                }
+                String childName = key.checkjstring().toLowerCase(Locale.ROOT);
+                if (childName.isEmpty() || childName.contains(" ")) {
+                    throw new LuaError(path + ": invalid subcommand name '" + childName + "'");
+                }
+                node.children.put(childName, compileNode(path + " " + childName, next.arg(2).checktable()));
+            }
+        }
+
+        if (node.run == null && node.children.isEmpty()) {
+            throw new LuaError(path + ": needs a 'run' function or 'subcommands'");
+        }
+        if (!node.children.isEmpty() && !node.arguments.isEmpty()) {
+            throw new LuaError(path + ": cannot have both 'args' and 'subcommands'");
+        }
+        node.childNames = List.copyOf(node.children.keySet());
+        node.usage = buildUsage(node);
+        return node;
+    }
+
+    private static Argument compileArgument(String path, LuaTable spec) {
+        String name = spec.get("name").checkjstring();
+        String typeName = spec.get("type").optjstring("string");
+        ArgumentType type;
+        try {
+            type = ArgumentType.valueOf(typeName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new LuaError(path + ": argument '" + name + "' has unknown type '" + typeName + "'");
+        }
+
+        List<String> values = null;
+        if (type == ArgumentType.ENUM) {
+            LuaValue valuesVal = spec.get("values");
+            if (!valuesVal.istable()) {
+                throw new LuaError(path + ": enum argument '" + name + "' needs a 'values' list");
+            }
+            LuaTable valuesTable = valuesVal.checktable();
+            List<String> names = new ArrayList<>();
+            for (int i = 1, n = valuesTable.length(); i <= n; i++) {
+                names.add(valuesTable.get(i).checkjstring());
+            }
+            values = sortedLowerCase(names);
+        }
+
+        Argument argument = new Argument(name, type, spec.get("optional").toboolean(), values);
+        if (!spec.get("min").isnil()) {
+            argument.min = spec.get("min").checkdouble();
+        }
+        if (!spec.get("max").isnil()) {
+            argument.max = spec.get("max").checkdouble();
+        }
+        return argument;
+    }
+
+    private static String buildUsage(Node node) {
+        StringBuilder usage = new StringBuilder(node.path);
+        if (!node.children.isEmpty()) {
+            usage.append(' ').append(node.run == null ? "<" : "[").append(String.join("|", node.childNames))
+                    .append(node.run == null ? ">" : "]");
+        }
+        for (Argument argument : node.arguments) {
+            usage.append(' ').append(argument.optional ? '[' : '<').append(argument.name)
+                    .append(argument.optional ? ']' : '>');
+        }
+        return usage.toString();
+    }
+
+    String getPermission() {
+        return root.permission;
+    }
+
+    String getUsage() {
+        return root.usage;
+    }
+
+    /**
+     * A parsed invocation: the handler to call, its path for error reporting, and its arguments.
+     */
+    record Invocation(String path, LuaValue handler, LuaTable args) {
+    }
+
+    /**
+     * Resolves subcommands and parses arguments. Problems are reported to the sender.
+     *
+     * @return The invocation, or null if the input was rejected
+     */
+    Invocation parse(CommandSender sender, String[] tokens) {
+        Node node = root;
+        int index = 0;
+        while (true) {
+            if (!node.permitted(sender)) {
+                sender.sendMessage("§cYou don't have permission to use " + node.path + ".");
+                return null;
+            }
+            Node child = index < tokens.length ? node.children.get(tokens[index].toLowerCase(Locale.ROOT)) : null;
+            if (child == null) {
+                break;
+            }
+            node = child;
+            index++;
+        }
+
+        if (node.run == null) {
+            sender.sendMessage(index < tokens.length
+                    ? "§cUnknown subcommand '" + tokens[index] + "'. Usage: " + node.usage
+                    : "§cUsage: " + node.usage);
+            return null;
+        }
+
+        LuaTable args = new LuaTable(0, node.arguments.size());
+        for (Argument argument : node.arguments) {
+            if (index >= tokens.length) {
+                if (!argument.optional) {
+                    sender.sendMessage("§cMissing <" + argument.name + ">. Usage: " + node.usage);
+                    return null;
+                }
+                break;
+            }
+            String token = argument.type == ArgumentType.TEXT
+                    ? String.join(" ", Arrays.copyOfRange(tokens, index, tokens.length))
+                    : tokens[index];
+            index = argument.type == ArgumentType.TEXT ? tokens.length : index + 1;
+            LuaValue value;
+            try {
+                value = argument.parse(token);
+            } catch (IllegalArgumentException e) {
+                sender.sendMessage("§cInvalid " + argument.name + ": " + e.getMessage() + ". Usage: " + node.usage);
+                return null;
+            }
+            args.rawset(argument.name, value);
+        }
+        if (index < tokens.length) {
+            sender.sendMessage("§cToo many arguments. Usage: " + node.usage);
+            return null;
+        }
+        return new Invocation(node.path, node.run, args);
+    }
+
+    /**
+     * Completes the last token of a partial command line.
+     */
+    List<String> complete(CommandSender sender, String[] tokens) {
+        if (tokens.length == 0 || !root.permitted(sender)) {
+            return List.of();
+        }
+        Node node = root;
+        int index = 0;
+        int last = tokens.length - 1;
+        while (index < last) {
+            Node child = node.children.get(tokens[index].toLowerCase(Locale.ROOT));
+            if (child == null || !child.permitted(sender)) {
+                break;
+            }
+            node = child;
+            index++;
+        }
+
+        String prefix = tokens[last].toLowerCase(Locale.ROOT);
+        if (index == last && !node.children.isEmpty()) {
+            List<String> names = new ArrayList<>();
+            for (String name : startingWith(node.childNames, prefix)) {
+                if (node.children.get(name).permitted(sender)) {
+                    names.add(name);
+                }
+            }
+            return names;
+        }
+        int position = last - index;
+        if (position >= node.arguments.size()) {
+            return List.of();
+        }
+        // Bukkit may sort the returned list, so never hand out the cached one.
+        return new ArrayList<>(node.arguments.get(position).complete(prefix));
+    }
+
+    /**
+     * @return The entries of a sorted, lower-case list that start with a lower-case prefix
+     */
+    private static List<String> startingWith(List<String> sorted, String prefix) {
+        if (prefix.isEmpty()) {
+            return sorted;
+        }
+        int from = Collections.binarySearch(sorted, prefix);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        int to = from;
+        while (to < sorted.size() && sorted.get(to).startsWith(prefix)) {
+            to++;
+        }
+        return sorted.subList(from, to);
+    }
+
+    private static List<String> sortedLowerCase(List<String> names) {
+        List<String> sorted = new ArrayList<>(names.size());
+        for (String name : names) {
+            sorted.add(name.toLowerCase(Locale.ROOT));
+        }
+        Collections.sort(sorted);
+        return List.copyOf(sorted);
+    }
+
+    private static final class Node {
+        final String path;
+        final String permission;
+        final LuaValue run;
+        final List<Argument> arguments = new ArrayList<>();
+        final Map<String, Node> children = new TreeMap<>();
+        List<String> childNames;
+        String usage;
+
+        Node(String path, String permission, LuaValue run) {
+            this.path = path;
+            this.permission = permission;
+            this.run = run;
+        }
+
+        boolean permitted(CommandSender sender) {
+            return permission == null || permission.isEmpty() || sender.hasPermission(permission);
+        }
+    }
+
+    private enum ArgumentType {
+        STRING, TEXT, INT, NUMBER, BOOLEAN, PLAYER, WORLD, MATERIAL, ENUM
+    }
+
+    private static final class Argument {
+        final String name;
+        final ArgumentType type;
+        final boolean optional;
+        final List<String> values;
+        double min = Double.NEGATIVE_INFINITY;
+        double max = Double.POSITIVE_INFINITY;
+
+        Argument(String name, ArgumentType type, boolean optional, List<String> values) {
+            this.name = name;
+            this.type = type;
+            this.optional = optional;
+            this.values = values;
+        }
+
+        /**
+         * @throws IllegalArgumentException With a message for the sender if the token is not valid
+         */
+        LuaValue parse(String token) {
+            switch (type) {
+                case STRING, TEXT -> {
+                    return LuaValue.valueOf(token);
+                }
+                case INT -> {
+                    int value;
+                    try {
+                        value = Integer.parseInt(token);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("'" + token + "' is not a whole number");
+                    }
+                    checkRange(value);
+                    return LuaValue.valueOf(value);
+                }
+                case NUMBER -> {
+                    double value;
+                    try {
+                        value = Double.parseDouble(token);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("'" + token + "' is not a number");
+                    }
+                    if (Double.isNaN(value) || Double.isInfinite(value)) {
+                        throw new IllegalArgumentException("'" + token + "' is not a number");
+                    }
+                    checkRange(value);
+                    return LuaValue.valueOf(value);
+                }
+                case BOOLEAN -> {
+                    String lower = token.toLowerCase(Locale.ROOT);
+                    if (lower.equals("true") || lower.equals("false")) {
+                        return LuaValue.valueOf(lower.equals("true"));
+                    }
+                    throw new IllegalArgumentException("expected true or false");
+                }
+                case PLAYER -> {
+                    Player player = Bukkit.getPlayerExact(token);
+                    if (player == null) {
+                        throw new IllegalArgumentException("player '" + token + "' is not online");
+                    }
+                    PlayerIndex index = ScriptExecutor.getPlayerIndex();
+                    LuaValue handle = index == null ? null : index.get(player);
+                    return handle != null ? handle : LuaBindings.coerce(player);
+                }
+                case WORLD -> {
+                    World world = Bukkit.getWorld(token);
+                    if (world == null) {
+                        throw new IllegalArgumentException("world '" + token + "' does not exist");
+                    }
+                    return LuaBindings.coerce(world);
+                }
+                case MATERIAL -> {
+                    Material material = Material.matchMaterial(token);
+                    if (material == null) {
+                        throw new IllegalArgumentException("'" + token + "' is not a material");
+                    }
+                    return LuaBindings.coerce(material);
+                }
+                case ENUM -> {
+                    String lower = token.toLowerCase(Locale.ROOT);
+                    if (Collections.binarySearch(values, lower) < 0) {
+                        throw new IllegalArgumentException("expected one of " + String.join(", ", values));
+                    }
+                    return LuaValue.valueOf(lower);
+                }
+                default -> throw new IllegalStateException("Unknown argument type " + type);
+            }
+        }
+
+        private void checkRange(double value) {
+            if (value >= min && value <= max) {
+                return;
+            }
+            if (min == Double.NEGATIVE_INFINITY) {
+                throw new IllegalArgumentException(format(value) + " must be at most " + format(max));
+            }
+            if (max == Double.POSITIVE_INFINITY) {
+                throw new IllegalArgumentException(format(value) + " must be at least " + format(min));
+            }
+            throw new IllegalArgumentException(format(value) + " is not between " + format(min) + " and " + format(max));
+        }
+
+        /**
+         * Whole numbers without a fraction for {@code int} arguments, e.g. 64 rather than 64.0.
+         */
+        private String format(double value) {
+            if (type == ArgumentType.INT && value == Math.rint(value) && Math.abs(value) < 1e15) {
+                return Long.toString((long) value);
+            }
+            return Double.toString(value);
+        }
+
+        List<String> complete(String prefix) {
+            switch (type) {
+                case BOOLEAN -> {
+                    return startingWith(BOOLEAN_NAMES, prefix);
+                }
+                case MATERIAL -> {
+                    return startingWith(MATERIAL_NAMES, prefix);
+                }
+                case ENUM -> {
+                    return startingWith(values, prefix);
+                }
+                case PLAYER -> {
+                    List<String> names = new ArrayList<>();
+                    for (Player player : Bukkit.getOnlinePlayers()) {
+                        if (player.getName().toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                            names.add(player.getName());
+                        }
+                    }
+                    return names;
+                }
+                case WORLD -> {
+                    List<String> names = new ArrayList<>();
+                    for (World world : Bukkit.getWorlds()) {
+                        if (world.getName().toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                            names.add(world.getName());
+                        }
+                    }
+                    return names;
+                }
+                default -> {
+                    return List.of();
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package me.touchie771.minecraftLuaScripting.commands;
 
+import me.touchie771.minecraftLuaScripting.BlockEditQueue;
+import me.touchie771.minecraftLuaScripting.CallbackProfiler;
+import me.touchie771.minecraftLuaScripting.KeyValueStore;
+import me.touchie771.minecraftLuaScripting.LuaWorkerPool;
 import me.touchie771.minecraftLuaScripting.MinecraftLuaScripting;
+import me.touchie771.minecraftLuaScripting.ScriptCache;
 import me.touchie771.minecraftLuaScripting.ScriptExecutor;
+import me.touchie771.minecraftLuaScripting.ScriptLog;
+import me.touchie771.minecraftLuaScripting.ScriptMemory;
+import me.touchie771.minecraftLuaScripting.ScriptRuntime;
+import me.touchie771.minecraftLuaScripting.TimerWheel;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -10,7 +19,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Unmodifiable;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 public record LuaScriptCommand(MinecraftLuaScripting plugin) implements CommandExecutor, TabCompleter {
@@ -18,7 +30,7 @@ public record LuaScriptCommand(MinecraftLuaScripting plugin) implements CommandE
     @Override
     public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
         if (args.length == 0) {
-            sender.sendMessage("§cUsage: /luascript <reloadall|list|run|reload> [script]");
+            sender.sendMessage("§cUsage: /luascript <reloadall|list|run|reload|stats|profile|memory> [script]");
             return true;
         }
         if (!sender.hasPermission("luascript.admin")) return true;
@@ -84,13 +96,11 @@ public record LuaScriptCommand(MinecraftLuaScripting plugin) implements CommandE
 
                 String scriptName = args[1];
                 sender.sendMessage("§eReloading script: " + scriptName);
-                sender.sendMessage("§7Warning: This will clear ALL script resources, not just this script's!");
 
                 try {
                     boolean success = ScriptExecutor.reloadScript(plugin, scriptName);
                     if (success) {
                         sender.sendMessage("§aSuccessfully reloaded script: " + scriptName);
-                        sender.sendMessage("§7Note: Other scripts will need to be reloaded to restore their functionality.");
                     } else {
                         sender.sendMessage("§cFailed to reload script. Check console for details.");
                     }
@@ -99,8 +109,130 @@ public record LuaScriptCommand(MinecraftLuaScripting plugin) implements CommandE
                 }
                 return true;
             }
+            case "stats" -> {
+                ScriptCache cache = ScriptExecutor.getScriptCache();
+                if (cache == null) {
+                    sender.sendMessage("§cScript cache is not initialized.");
+                    return true;
+                }
+                sender.sendMessage("§aScript cache §7(" + (cache.isPersistent() ? "memory + disk" : "memory only") + ")§a:");
+                sender.sendMessage("§7- §fEntries: " + cache.size());
+                sender.sendMessage("§7- §fHits: " + cache.getHits()
+                        + " §7| §fDisk hits: " + cache.getDiskHits()
+                        + " §7| §fMisses: " + cache.getMisses());
+
+                TimerWheel timers = ScriptExecutor.getTimerWheel();
+                if (timers != null) {
+                    sender.sendMessage("§aTimers§7: §fPending: " + timers.getPending()
+                            + " §7| §fFired total: " + timers.getTotalFired());
+                    sender.sendMessage(String.format("§7- §fFired per tick: §f%d §7last, §f%.1f §7avg, §f%d §7peak (last second)",
+                            timers.getLastTickFired(), timers.getAverageFired(), timers.getPeakFired()));
+                }
+
+                BlockEditQueue blockEdits = ScriptExecutor.getBlockEdits();
+                if (blockEdits != null) {
+                    sender.sendMessage("§aBlock edits§7: §fQueued jobs: " + blockEdits.getQueuedJobs()
+                            + " §7| §fPending blocks: " + blockEdits.getPendingBlocks());
+                    sender.sendMessage("§7- §fApplied: §f" + blockEdits.getLastTickApplied() + " §7last tick, §f"
+                            + blockEdits.getTotalApplied() + " §7total");
+                }
+
+                KeyValueStore store = ScriptExecutor.getStore();
+                if (store != null) {
+                    sender.sendMessage("§aScript store§7: §fNamespaces: " + store.getNamespaceCount()
+                            + " §7| §fKeys: " + store.getKeyCount());
+                    sender.sendMessage(String.format("§7- §fLog: §f%.1f KiB §7| §fPending writes: §f%d §7| §fCompactions: §f%d",
+                            store.getLogBytes() / 1024.0, store.getPendingWrites(), store.getCompactions()));
+                }
+
+                ScriptLog scriptLog = ScriptExecutor.getScriptLog();
+                if (scriptLog != null) {
+                    sender.sendMessage("§aScript log§7: §fBuffered: " + scriptLog.getBuffered()
+                            + " §7| §fDropped by rate limit: " + scriptLog.getRateLimited()
+                            + " §7| §fDropped, buffer full: " + scriptLog.getOverflowed());
+                }
+
+                LuaWorkerPool pool = ScriptExecutor.getWorkerPool();
+                if (pool != null) {
+                    sender.sendMessage("§aWorker pool §7(" + pool.getThreads() + " threads)§a:");
+                    sender.sendMessage("§7- §fActive: " + pool.getActive()
+                            + " §7| §fQueued: " + pool.getQueued());
+                    sender.sendMessage("§7- §fCompleted: " + pool.getCompleted()
+                            + " §7| §fFailed: " + pool.getFailed()
+                            + " §7| §fRejected: " + pool.getRejected());
+                }
+                return true;
+            }
+            case "profile" -> {
+                String action = args.length < 2 ? "dump" : args[1].toLowerCase();
+                switch (action) {
+                    case "start" -> {
+                        CallbackProfiler.start();
+                        sender.sendMessage("§aStarted profiling Lua callbacks.");
+                    }
+                    case "stop" -> {
+                        CallbackProfiler.stop();
+                        sender.sendMessage("§aStopped profiling after " + CallbackProfiler.getDurationMillis() + " ms.");
+                    }
+                    case "dump" -> {
+                        List<CallbackProfiler.HandlerStats> top = CallbackProfiler.top(10);
+                        if (top.isEmpty()) {
+                            sender.sendMessage("§eNo profile data. Use /luascript profile start first.");
+                            return true;
+                        }
+                        sender.sendMessage("§aTop Lua handlers by total time §7(" + CallbackProfiler.getDurationMillis() + " ms)§a:");
+                        for (CallbackProfiler.HandlerStats stats : top) {
+                            sender.sendMessage(String.format("§7- §f%s §7%s: §f%.2f ms §7total, §f%.1f µs §7p99, §f%d §7calls",
+                                    stats.scriptName(), stats.handlerName(),
+                                    stats.totalNanos() / 1_000_000.0,
+                                    stats.percentileNanos(0.99) / 1_000.0,
+                                    stats.calls()));
+                        }
+                        try {
+                            File report = CallbackProfiler.writeReport(new File(plugin.getDataFolder(), "profiles"));
+                            sender.sendMessage("§7Full report written to " + report.getPath());
+                        } catch (IOException e) {
+                            sender.sendMessage("§cFailed to write profile report: " + e.getMessage());
+                        }
+                    }
+                    default -> sender.sendMessage("§cUsage: /luascript profile <start|stop|dump>");
+                }
+                return true;
+            }
+            case "memory" -> {
+                List<ScriptMemory.Usage> usages = new ArrayList<>();
+                for (ScriptRuntime runtime : ScriptExecutor.getRuntimes()) {
+                    usages.add(ScriptMemory.estimate(runtime));
+                }
+                usages.sort(Comparator.comparingLong(ScriptMemory.Usage::totalBytes).reversed());
+
+                sender.sendMessage("§aEstimated script memory §7(" + usages.size() + " scripts)§a:");
+                for (ScriptMemory.Usage usage : usages) {
+                    sender.sendMessage(String.format("§7- §f%s: §f%.1f KiB%s §7| §f%d §7tables §f%.1f KiB, §f%d §7closures §f%.1f KiB, §f%d §7strings §f%.1f KiB, code §f%.1f KiB",
+                            usage.scriptName(), usage.totalBytes() / 1024.0, usage.truncated() ? "+" : "",
+                            usage.tables(), usage.tableBytes() / 1024.0,
+                            usage.closures(), usage.closureBytes() / 1024.0,
+                            usage.strings(), usage.stringBytes() / 1024.0,
+                            usage.codeBytes() / 1024.0));
+                }
+
+                ScriptMemory memory = ScriptExecutor.getMemory();
+                if (memory != null) {
+                    List<ScriptMemory.Retained> retained = memory.getRetained();
+                    sender.sendMessage("§aDiscarded runtimes still in memory§7: §f" + retained.size());
+                    for (ScriptMemory.Retained entry : retained) {
+                        sender.sendMessage("§7- " + (entry.reported() ? "§c" : "§f") + entry.scriptName()
+                                + " §7discarded §f" + entry.ageSeconds() + " s §7ago" + (entry.reported() ? " §c(likely leaked)" : " §7(not collected yet)"));
+                    }
+                }
+
+                Runtime jvm = Runtime.getRuntime();
+                sender.sendMessage(String.format("§7Heap: §f%d MiB §7used of §f%d MiB",
+                        (jvm.totalMemory() - jvm.freeMemory()) >> 20, jvm.maxMemory() >> 20));
+                return true;
+            }
             default ->
-                    sender.sendMessage("§cUnknown subcommand. Usage: /luascript <reloadall|list|run|reload> [script]");
+                    sender.sendMessage("§cUnknown subcommand. Usage: /luascript <reloadall|list|run|reload|stats|profile|memory> [script]");
         }
         return true;
     }
@@ -108,7 +240,11 @@ public record LuaScriptCommand(MinecraftLuaScripting plugin) implements CommandE
     @Override
     public @NotNull @Unmodifiable List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String @NotNull [] args) {
         if (args.length == 1) {
-            return List.of("reloadall", "list", "run", "reload");
+            return List.of("reloadall", "list", "run", "reload", "stats", "profile", "memory");
+        }
+
+        if (args.length == 2 && args[0].equalsIgnoreCase("profile")) {
+            return List.of("start", "stop", "dump");
         }
         
         // Tab complete script names for run and reload commands
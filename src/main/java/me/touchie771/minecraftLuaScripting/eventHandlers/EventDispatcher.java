@@ -0,0 +1,191 @@
+package me.touchie771.minecraftLuaScripting.eventHandlers;
+
+import me.touchie771.minecraftLuaScripting.MinecraftLuaScripting;
+import me.touchie771.minecraftLuaScripting.ScriptMetrics;
+import me.touchie771.minecraftLuaScripting.ScriptRuntime;
+import me.touchie771.minecraftLuaScripting.bindings.LuaBindings;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.jetbrains.annotations.NotNull;
+import org.luaj.vm2.LuaValue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * A single Bukkit registration for one event class at one priority, fanning each event out to
+ * every Lua subscription for that class. The event is coerced to Lua at most once per firing,
+ * and subscriptions are added or removed without touching Bukkit's HandlerList.
+ */
+public final class EventDispatcher implements Listener, EventExecutor {
+
+    private static final Map<Key, EventDispatcher> DISPATCHERS = new HashMap<>();
+    private static final Subscription[] EMPTY = new Subscription[0];
+    private static int nextSubscriptionId = 1;
+
+    private final Class<? extends Event> eventClass;
+    private final Logger logger;
+    private final LongAdder dispatched;
+    private volatile Subscription[] subscriptions = EMPTY;
+
+    EventDispatcher(Class<? extends Event> eventClass, Logger logger) {
+        this.eventClass = eventClass;
+        this.logger = logger;
+        this.dispatched = ScriptMetrics.events(eventClass);
+    }
+
+    /**
+     * Adds a Lua callback for an event class, registering a dispatcher with Bukkit the first time
+     * the class and priority combination is used.
+     *
+     * @return The new subscription
+     */
+    static Subscription subscribe(MinecraftLuaScripting plugin, Class<? extends Event> eventClass, EventPriority priority,
+                                  boolean ignoreCancelled, Predicate<Event> filter, EventMode mode,
+                                  ScriptRuntime runtime, String eventName, LuaValue callback) {
+        Key key = new Key(eventClass, priority);
+        EventDispatcher dispatcher = DISPATCHERS.get(key);
+        if (dispatcher == null) {
+            dispatcher = new EventDispatcher(eventClass, plugin.getLogger());
+            Bukkit.getPluginManager().registerEvent(eventClass, dispatcher, priority, dispatcher, plugin);
+            DISPATCHERS.put(key, dispatcher);
+        }
+
+        int id = nextSubscriptionId++;
+        Subscription subscription = new Subscription(id, dispatcher, runtime, eventName, "on(" + eventName + ")#" + id,
+                callback, ignoreCancelled, filter, mode);
+        dispatcher.add(subscription);
+        if (mode != null) {
+            mode.attach(plugin, subscription);
+        }
+        return subscription;
+    }
+
+    /**
+     * Unregisters every dispatcher from Bukkit and drops all subscriptions.
+     */
+    public static void unregisterAll() {
+        for (EventDispatcher dispatcher : DISPATCHERS.values()) {
+            dispatcher.subscriptions = EMPTY;
+            HandlerList.unregisterAll(dispatcher);
+        }
+        EventMode.unregisterAll();
+        DISPATCHERS.clear();
+    }
+
+    /**
+     * @return The number of Bukkit registrations currently held by Lua dispatchers
+     */
+    public static int getDispatcherCount() {
+        return DISPATCHERS.size();
+    }
+
+    /**
+     * @return The number of Lua subscriptions across all dispatchers
+     */
+    public static int getSubscriptionCount() {
+        int count = 0;
+        for (EventDispatcher dispatcher : DISPATCHERS.values()) {
+            count += dispatcher.subscriptions.length;
+        }
+        return count;
+    }
+
+    private synchronized void add(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        Subscription[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = subscription;
+        subscriptions = next;
+    }
+
+    synchronized boolean remove(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                Subscription[] next = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                subscriptions = next;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void execute(@NotNull Listener listener, @NotNull Event event) {
+        // Child events with their own HandlerList never reach here, but ones sharing the parent's list do.
+        if (!eventClass.isInstance(event)) {
+            return;
+        }
+
+        Subscription[] current = subscriptions;
+        if (current.length == 0) {
+            return;
+        }
+
+        if (ScriptMetrics.isEnabled()) {
+            dispatched.increment();
+        }
+        LuaValue coerced = null;
+        for (Subscription subscription : current) {
+            if (subscription.ignoreCancelled() && event instanceof Cancellable cancellable && cancellable.isCancelled()) {
+                continue;
+            }
+            if (subscription.filter() != null && !subscription.filter().test(event)) {
+                continue;
+            }
+            if (subscription.mode() != null && !subscription.mode().admit(event)) {
+                continue;
+            }
+            if (coerced == null) {
+                coerced = LuaBindings.coerce(event);
+            }
+            invoke(subscription, coerced);
+        }
+    }
+
+    /**
+     * Delivers an event held back by the subscription's {@link EventMode}.
+     */
+    void deliver(Subscription subscription, Event event) {
+        invoke(subscription, LuaBindings.coerce(event));
+    }
+
+    private void invoke(Subscription subscription, LuaValue coerced) {
+        try {
+            subscription.runtime().invoke(subscription.handlerName(), subscription.callback(), coerced);
+        } catch (Exception e) {
+            logger.severe("Error in Lua event listener for " + subscription.eventName()
+                    + " in " + subscription.runtime().getName() + ": " + e.getMessage());
+        }
+    }
+
+    private record Key(Class<? extends Event> eventClass, EventPriority priority) {
+    }
+
+    /**
+     * A Lua callback attached to a dispatcher.
+     *
+     * @param handlerName The name the watchdog and profiler report the callback under, built once
+     */
+    record Subscription(int id, EventDispatcher dispatcher, ScriptRuntime runtime, String eventName, String handlerName,
+                        LuaValue callback, boolean ignoreCancelled, Predicate<Event> filter, EventMode mode) {
+
+        boolean cancel() {
+            if (mode != null) {
+                mode.cancel();
+            }
+            return dispatcher.remove(this);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package me.touchie771.minecraftLuaScripting.eventHandlers;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.EntityType;
+import org.bukkit.event.Event;
+import org.bukkit.event.block.BlockEvent;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.vehicle.VehicleEvent;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+import org.bukkit.event.world.WorldEvent;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Compiles the {@code filter} option of {@code on()} into a Java predicate that the dispatcher checks before
+ * the event is converted for Lua, so events a handler would ignore never enter Lua at all.
+ * <p>
+ * Supported keys: {@code blockChanged} (move events: only when the block position or world changed),
+ * {@code worlds}, {@code materials} (the event's block) and {@code entityTypes} (the event's entity).
+ * A key that does not apply to the event class is an error when the listener is registered.
+ */
+final class EventFilter {
+
+    private EventFilter() {
+    }
+
+    /**
+     * @param eventClass The event class the listener is registered for
+     * @param spec The filter table
+     * @return The predicate, or null if the table has no conditions
+     */
+    static Predicate<Event> compile(Class<? extends Event> eventClass, LuaValue spec) {
+        if (!spec.istable()) {
+            LuaValue.error("on(event, fn, options): filter must be a table");
+        }
+
+        LuaValue key = LuaValue.NIL;
+        while (true) {
+            Varargs next = spec.next(key);
+            key = next.arg1();
+            if (key.isnil()) {
+                break;
+            }
+            String name = key.tojstring();
+            if (!name.equals("blockChanged") && !name.equals("worlds")
+                    && !name.equals("materials") && !name.equals("entityTypes")) {
+                LuaValue.error("Unknown event filter '" + name + "', expected blockChanged, worlds, materials or entityTypes");
+            }
+        }
+
+        // Cheapest checks first; all of them must pass.
+        List<Predicate<Event>> conditions = new ArrayList<>();
+        if (spec.get("blockChanged").toboolean()) {
+            conditions.add(blockChanged(eventClass));
+        }
+        LuaValue entityTypes = spec.get("entityTypes");
+        if (!entityTypes.isnil()) {
+            conditions.add(entityTypes(eventClass, entityTypes));
+        }
+        LuaValue worlds = spec.get("worlds");
+        if (!worlds.isnil()) {
+            conditions.add(worlds(eventClass, worlds));
+        }
+        LuaValue materials = spec.get("materials");
+        if (!materials.isnil()) {
+            conditions.add(materials(eventClass, materials));
+        }
+
+        if (conditions.isEmpty()) {
+            return null;
+        }
+        if (conditions.size() == 1) {
+            return conditions.get(0);
+        }
+        @SuppressWarnings("unchecked")
+        Predicate<Event>[] all = conditions.toArray(new Predicate[0]);
+        return event -> {
+            for (Predicate<Event> condition : all) {
+                if (!condition.test(event)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static Predicate<Event> blockChanged(Class<? extends Event> eventClass) {
+        if (PlayerMoveEvent.class.isAssignableFrom(eventClass)) {
+            return event -> {
+                PlayerMoveEvent move = (PlayerMoveEvent) event;
+                return blockChanged(move.getFrom(), move.getTo());
+            };
+        }
+        if (VehicleMoveEvent.class.isAssignableFrom(eventClass)) {
+            return event -> {
+                VehicleMoveEvent move = (VehicleMoveEvent) event;
+                return blockChanged(move.getFrom(), move.getTo());
+            };
+        }
+        throw unsupported("blockChanged", eventClass);
+    }
+
+    private static boolean blockChanged(Location from, Location to) {
+        return to == null
+                || from.getBlockX() != to.getBlockX()
+                || from.getBlockY() != to.getBlockY()
+                || from.getBlockZ() != to.getBlockZ()
+                || from.getWorld() != to.getWorld();
+    }
+
+    private static Predicate<Event> worlds(Class<? extends Event> eventClass, LuaValue list) {
+        Set<String> names = new HashSet<>(strings("worlds", list));
+        Function<Event, World> world = worldOf(eventClass);
+        if (world == null) {
+            throw unsupported("worlds", eventClass);
+        }
+        return event -> {
+            World current = world.apply(event);
+            return current != null && names.contains(current.getName());
+        };
+    }
+
+    private static Function<Event, World> worldOf(Class<? extends Event> eventClass) {
+        if (PlayerEvent.class.isAssignableFrom(eventClass)) {
+            return event -> ((PlayerEvent) event).getPlayer().getWorld();
+        }
+        if (EntityEvent.class.isAssignableFrom(eventClass)) {
+            return event -> ((EntityEvent) event).getEntity().getWorld();
+        }
+        if (BlockEvent.class.isAssignableFrom(eventClass)) {
+            return event -> ((BlockEvent) event).getBlock().getWorld();
+        }
+        if (VehicleEvent.class.isAssignableFrom(eventClass)) {
+            return event -> ((VehicleEvent) event).getVehicle().getWorld();
+        }
+        if (WorldEvent.class.isAssignableFrom(eventClass)) {
+            return event -> ((WorldEvent) event).getWorld();
+        }
+        return null;
+    }
+
+    private static Predicate<Event> materials(Class<? extends Event> eventClass, LuaValue list) {
+        Set<Material> materials = EnumSet.noneOf(Material.class);
+        for (String name : strings("materials", list)) {
+            Material material = Material.matchMaterial(name);
+            if (material == null) {
+                LuaValue.error("Unknown material in event filter: " + name);
+            }
+            materials.add(material);
+        }
+        if (BlockEvent.class.isAssignableFrom(eventClass)) {
+            return event -> materials.contains(((BlockEvent) event).getBlock().getType());
+        }
+        if (PlayerInteractEvent.class.isAssignableFrom(eventClass)) {
+            return event -> {
+                Block block = ((PlayerInteractEvent) event).getClickedBlock();
+                return block != null && materials.contains(block.getType());
+            };
+        }
+        throw unsupported("materials", eventClass);
+    }
+
+    private static Predicate<Event> entityTypes(Class<? extends Event> eventClass, LuaValue list) {
+        if (!EntityEvent.class.isAssignableFrom(eventClass)) {
+            throw unsupported("entityTypes", eventClass);
+        }
+        Set<EntityType> types = EnumSet.noneOf(EntityType.class);
+        for (String name : strings("entityTypes", list)) {
+            try {
+                types.add(EntityType.valueOf(name.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                LuaValue.error("Unknown entity type in event filter: " + name);
+            }
+        }
+        return event -> types.contains(((EntityEvent) event).getEntityType());
+    }
+
+    private static List<String> strings(String filterName, LuaValue list) {
+        if (!list.istable()) {
+            LuaValue.error("Event filter '" + filterName + "' must be a list of names");
+        }
+        List<String> names = new ArrayList<>();
+        for (int i = 1, n = list.length(); i <= n; i++) {
+            names.add(list.get(i).checkjstring());
+        }
+        if (names.isEmpty()) {
+            LuaValue.error("Event filter '" + filterName + "' must not be empty");
+        }
+        return names;
+    }
+
+    private static LuaError unsupported(String filterName, Class<? extends Event> eventClass) {
+        return new LuaError("Event filter '" + filterName + "' does not apply to " + eventClass.getSimpleName());
+    }
+}
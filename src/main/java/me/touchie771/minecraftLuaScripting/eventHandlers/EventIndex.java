@@ -0,0 +1,336 @@
+package me.touchie771.minecraftLuaScripting.eventHandlers;
+
+import org.bukkit.event.Event;
+import org.bukkit.plugin.Plugin;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Maps event names to event classes for {@code on()}. Built once when the plugin is enabled by scanning the server
+ * API jar (Bukkit and Paper events) and the jar of every loaded plugin. Superclasses are read from the class files,
+ * so no class is loaded until a script subscribes to it. Events can be named by their simple name, e.g.
+ * {@code PlayerJoinEvent}, or by their full class name; a simple name used by several classes resolves to the
+ * server's own event if there is exactly one, and otherwise needs the full name. Only used on the server thread.
+ */
+public final class EventIndex {
+
+    private static final String EVENT = "org/bukkit/event/Event";
+    // Paper ships some events outside the API jar.
+    private static final String[] SERVER_JAR_CLASSES = {
+        "com.destroystokyo.paper.event.brigadier.CommandRegisteredEvent"
+    };
+
+    private final Map<String, Entry> byName = new HashMap<>();
+    private final Map<String, List<Entry>> ambiguous = new HashMap<>();
+
+    private static final class Entry {
+        final String className;
+        final ClassLoader loader;
+        final boolean server;
+        Class<? extends Event> type;
+        boolean failed;
+
+        Entry(String className, ClassLoader loader, boolean server) {
+            this.className = className;
+            this.loader = loader;
+            this.server = server;
+        }
+    }
+
+    private EventIndex() {
+    }
+
+    /**
+     * Scans the server API and the plugins' jars for event classes.
+     *
+     * @param plugins The loaded plugins, may be null
+     */
+    public static EventIndex build(Logger logger, Plugin[] plugins) {
+        long start = System.nanoTime();
+        Scan scan = new Scan(logger);
+        int jars = scan.jar(Event.class, true) ? 1 : 0;
+        for (String className : SERVER_JAR_CLASSES) {
+            try {
+                if (scan.jar(Class.forName(className, false, Event.class.getClassLoader()), true)) {
+                    jars++;
+                }
+            } catch (ClassNotFoundException | LinkageError ignored) {
+                // Not a Paper server, or the class moved.
+            }
+        }
+        for (Plugin plugin : plugins != null ? plugins : new Plugin[0]) {
+            if (scan.jar(plugin.getClass(), false)) {
+                jars++;
+            }
+        }
+        if (!scan.sawEvent) {
+            logger.warning("Could not scan the server API for event classes; only full event class names will work in on()");
+        }
+
+        EventIndex index = new EventIndex();
+        Map<String, List<Entry>> bySimpleName = new HashMap<>();
+        int count = 0;
+        for (Map.Entry<String, ClassFile> entry : scan.classes.entrySet()) {
+            if (!scan.isEvent(entry.getKey())) {
+                continue;
+            }
+            count++;
+            String className = entry.getKey().replace('/', '.');
+            Entry event = new Entry(className, entry.getValue().loader(), entry.getValue().server());
+            index.byName.put(className, event);
+            String simpleName = simpleName(className);
+            if (simpleName != null) {
+                bySimpleName.computeIfAbsent(simpleName, k -> new ArrayList<>(1)).add(event);
+            }
+        }
+
+        int resolved = 0;
+        for (Map.Entry<String, List<Entry>> entry : bySimpleName.entrySet()) {
+            List<Entry> candidates = entry.getValue();
+            Entry chosen = candidates.size() == 1 ? candidates.get(0) : preferred(candidates);
+            if (chosen == null) {
+                index.ambiguous.put(entry.getKey(), candidates);
+            } else {
+                index.byName.putIfAbsent(entry.getKey(), chosen);
+                if (candidates.size() > 1) {
+                    resolved++;
+                }
+            }
+        }
+
+        logger.info(String.format("Indexed %d event classes from %d jars in %.1f ms (%d names shared with plugin events resolve to the server's event)",
+                count, jars, (System.nanoTime() - start) / 1e6, resolved));
+        if (!index.ambiguous.isEmpty()) {
+            logger.warning("These event names are used by several classes and need the full class name in on(): "
+                    + index.ambiguous.entrySet().stream()
+                    .map(e -> e.getKey() + " (" + e.getValue().stream().map(c -> c.className).collect(Collectors.joining(", ")) + ")")
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return index;
+    }
+
+    /**
+     * The single server (Bukkit or Paper) event among candidates sharing a simple name, preferring Bukkit's.
+     */
+    private static Entry preferred(List<Entry> candidates) {
+        Entry bukkit = null;
+        Entry server = null;
+        int bukkitCount = 0;
+        int serverCount = 0;
+        for (Entry candidate : candidates) {
+            if (!candidate.server) {
+                continue;
+            }
+            serverCount++;
+            server = candidate;
+            if (candidate.className.startsWith("org.bukkit.")) {
+                bukkitCount++;
+                bukkit = candidate;
+            }
+        }
+        if (bukkitCount == 1) {
+            return bukkit;
+        }
+        return serverCount == 1 ? server : null;
+    }
+
+    private static String simpleName(String className) {
+        String name = className.substring(className.lastIndexOf('.') + 1);
+        name = name.substring(name.lastIndexOf('$') + 1);
+        // Anonymous and local classes
+        return name.isEmpty() || Character.isDigit(name.charAt(0)) ? null : name;
+    }
+
+    /**
+     * @param name A simple or full event class name
+     * @return The event class, or null if the name is unknown or ambiguous
+     */
+    public Class<? extends Event> find(String name) {
+        Entry entry = byName.get(name);
+        if (entry == null || entry.failed) {
+            return null;
+        }
+        if (entry.type == null) {
+            try {
+                entry.type = Class.forName(entry.className, false, entry.loader).asSubclass(Event.class);
+            } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+                // E.g. an event of a plugin whose optional dependency is missing.
+                entry.failed = true;
+                return null;
+            }
+        }
+        return entry.type;
+    }
+
+    /**
+     * @return Why {@link #find(String)} returned null for a name
+     */
+    public String explainMiss(String name) {
+        List<Entry> candidates = ambiguous.get(name);
+        if (candidates != null) {
+            return "Event name " + name + " is ambiguous, use one of: "
+                    + candidates.stream().map(c -> c.className).collect(Collectors.joining(", "));
+        }
+        Entry entry = byName.get(name);
+        if (entry != null && entry.failed) {
+            return "Could not load event class " + entry.className;
+        }
+        return "Could not find event class for: " + name;
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    private record ClassFile(String superName, ClassLoader loader, boolean server) {
+    }
+
+    /**
+     * Reads the superclass of every class in the scanned jars.
+     */
+    private static final class Scan {
+        private final Logger logger;
+        private final Set<Path> scanned = new HashSet<>();
+        private final Map<String, ClassFile> classes = new HashMap<>();
+        private final Map<String, Boolean> events = new HashMap<>();
+        boolean sawEvent;
+
+        Scan(Logger logger) {
+            this.logger = logger;
+        }
+
+        /**
+         * Scans the jar a class was loaded from.
+         *
+         * @return true if a jar was scanned
+         */
+        boolean jar(Class<?> source, boolean server) {
+            CodeSource codeSource = source.getProtectionDomain().getCodeSource();
+            URL location = codeSource != null ? codeSource.getLocation() : null;
+            if (location == null) {
+                return false;
+            }
+            Path path;
+            try {
+                path = Path.of(location.toURI());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return false;
+            }
+            if (!Files.isRegularFile(path) || !scanned.add(path)) {
+                return false;
+            }
+
+            try (JarFile jar = new JarFile(path.toFile())) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (!name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+                        continue;
+                    }
+                    String className = name.substring(0, name.length() - ".class".length());
+                    if (className.equals(EVENT)) {
+                        sawEvent = true;
+                    }
+                    try (InputStream in = jar.getInputStream(entry)) {
+                        String superName = superName(in);
+                        if (superName != null) {
+                            classes.putIfAbsent(className, new ClassFile(superName, source.getClassLoader(), server));
+                        }
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                logger.warning("Failed to scan " + path.getFileName() + " for event classes: " + e);
+                return false;
+            }
+        }
+
+        boolean isEvent(String className) {
+            // Iterative walk up the superclass chain; classes outside the scanned jars end it.
+            List<String> chain = new ArrayList<>();
+            Boolean result = null;
+            String current = className;
+            while (result == null) {
+                if (current.equals(EVENT)) {
+                    result = true;
+                    break;
+                }
+                result = events.get(current);
+                if (result != null) {
+                    break;
+                }
+                ClassFile classFile = classes.get(current);
+                if (classFile == null) {
+                    result = false;
+                    break;
+                }
+                chain.add(current);
+                current = classFile.superName();
+            }
+            for (String name : chain) {
+                events.put(name, result);
+            }
+            return result && !className.equals(EVENT);
+        }
+
+        /**
+         * Reads the superclass name from a class file header.
+         *
+         * @return The internal name of the superclass, or null if there is none or the file is not a class file
+         */
+        private static String superName(InputStream stream) throws IOException {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            if (in.readInt() != 0xCAFEBABE) {
+                return null;
+            }
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            int count = in.readUnsignedShort();
+            String[] utf8 = new String[count];
+            int[] classNames = new int[count];
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1 -> utf8[i] = in.readUTF();
+                    case 7 -> classNames[i] = in.readUnsignedShort();
+                    case 8, 16, 19, 20 -> in.skipNBytes(2);
+                    case 15 -> in.skipNBytes(3);
+                    case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipNBytes(4);
+                    case 5, 6 -> {
+                        // Longs and doubles take two constant pool slots.
+                        in.skipNBytes(8);
+                        i++;
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            int superClass = in.readUnsignedShort();
+            return superClass == 0 ? null : utf8[classNames[superClass]];
+        }
+    }
+}
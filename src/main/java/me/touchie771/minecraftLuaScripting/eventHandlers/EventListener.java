@@ -1,83 +1,111 @@
 package me.touchie771.minecraftLuaScripting.eventHandlers;
 
 import me.touchie771.minecraftLuaScripting.MinecraftLuaScripting;
-import org.bukkit.Bukkit;
+import me.touchie771.minecraftLuaScripting.ScriptRuntime;
 import org.bukkit.event.Event;
 import org.bukkit.event.EventPriority;
-import org.bukkit.event.Listener;
 import org.luaj.vm2.LuaValue;
-import org.luaj.vm2.lib.TwoArgFunction;
-import org.luaj.vm2.lib.jse.CoerceJavaToLua;
+import org.luaj.vm2.lib.OneArgFunction;
+import org.luaj.vm2.lib.ThreeArgFunction;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
-public class EventListener implements Listener {
+/**
+ * The event API of a single script. Subscriptions are attached to the shared {@link EventDispatcher}s
+ * and tracked here so they can be removed when the script is reloaded.
+ */
+public class EventListener {
 
     private final MinecraftLuaScripting plugin;
-    private final Map<String, Class<? extends Event>> eventCache = new HashMap<>();
+    private final ScriptRuntime runtime;
+    private final EventIndex eventIndex;
+    private final Map<Integer, EventDispatcher.Subscription> subscriptions = new LinkedHashMap<>();
 
-    public EventListener(MinecraftLuaScripting plugin) {
+    public EventListener(MinecraftLuaScripting plugin, ScriptRuntime runtime, EventIndex eventIndex) {
         this.plugin = plugin;
+        this.runtime = runtime;
+        this.eventIndex = eventIndex;
     }
 
-    public class On extends TwoArgFunction {
+    /**
+     * Removes every subscription this script registered.
+     */
+    public void unregisterAll() {
+        for (EventDispatcher.Subscription subscription : subscriptions.values()) {
+            subscription.cancel();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * @return The Lua callbacks of this script's current subscriptions
+     */
+    public List<LuaValue> getCallbacks() {
+        List<LuaValue> callbacks = new ArrayList<>(subscriptions.size());
+        for (EventDispatcher.Subscription subscription : subscriptions.values()) {
+            callbacks.add(subscription.callback());
+        }
+        return callbacks;
+    }
+
+    public class On extends ThreeArgFunction {
         @Override
-        public LuaValue call(LuaValue eventNameVal, LuaValue callbackVal) {
+        public LuaValue call(LuaValue eventNameVal, LuaValue callbackVal, LuaValue optionsVal) {
             String eventName = eventNameVal.checkjstring();
             if (!callbackVal.isfunction()) {
                 return LuaValue.error("Callback must be a function");
             }
 
-            Class<? extends Event> eventClass = getEventClass(eventName);
+            EventPriority priority = EventPriority.NORMAL;
+            boolean ignoreCancelled = false;
+            if (!optionsVal.isnil()) {
+                if (!optionsVal.istable()) {
+                    return LuaValue.error("on(event, fn, options): options must be a table");
+                }
+                String priorityName = optionsVal.get("priority").optjstring("NORMAL");
+                try {
+                    priority = EventPriority.valueOf(priorityName.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    return LuaValue.error("Invalid event priority: " + priorityName);
+                }
+                ignoreCancelled = optionsVal.get("ignoreCancelled").optboolean(false);
+            }
+
+            Class<? extends Event> eventClass = eventIndex.find(eventName);
             if (eventClass == null) {
-                plugin.getLogger().warning("Could not find event class for: " + eventName);
+                plugin.getLogger().warning(eventIndex.explainMiss(eventName));
                 return LuaValue.FALSE;
             }
 
-            Bukkit.getPluginManager().registerEvent(eventClass, EventListener.this, EventPriority.NORMAL, (listener, event) -> {
-                if (eventClass.isInstance(event)) {
-                    try {
-                        callbackVal.call(CoerceJavaToLua.coerce(event));
-                    } catch (Exception e) {
-                        plugin.getLogger().severe("Error in Lua event listener for " + eventName + ": " + e.getMessage());
-                    }
+            Predicate<Event> filter = null;
+            EventMode mode = null;
+            if (!optionsVal.isnil()) {
+                if (!optionsVal.get("filter").isnil()) {
+                    filter = EventFilter.compile(eventClass, optionsVal.get("filter"));
                 }
-            }, plugin);
+                mode = EventMode.compile(eventClass, optionsVal);
+            }
+
+            EventDispatcher.Subscription subscription = EventDispatcher.subscribe(
+                    plugin, eventClass, priority, ignoreCancelled, filter, mode, runtime, eventName, callbackVal);
+            subscriptions.put(subscription.id(), subscription);
 
-            return LuaValue.TRUE;
+            return LuaValue.valueOf(subscription.id());
         }
     }
 
-    private Class<? extends Event> getEventClass(String name) {
-        if (eventCache.containsKey(name)) return eventCache.get(name);
-
-        String[] packages = {
-            "org.bukkit.event.",
-            "org.bukkit.event.player.",
-            "org.bukkit.event.entity.",
-            "org.bukkit.event.block.",
-            "org.bukkit.event.world.",
-            "org.bukkit.event.inventory.",
-            "org.bukkit.event.server.",
-            "org.bukkit.event.vehicle.",
-            "org.bukkit.event.weather.",
-            "org.bukkit.event.hanging.",
-            "org.bukkit.event.enchantment.",
-            "org.bukkit.event.raid."
-        };
-
-        for (String pkg : packages) {
-            try {
-                Class<?> clazz = Class.forName(pkg + name);
-                if (Event.class.isAssignableFrom(clazz)) {
-                    @SuppressWarnings("unchecked")
-                    Class<? extends Event> eventClass = (Class<? extends Event>) clazz;
-                    eventCache.put(name, eventClass);
-                    return eventClass;
-                }
-            } catch (ClassNotFoundException ignored) {}
+    public class Off extends OneArgFunction {
+        @Override
+        public LuaValue call(LuaValue idVal) {
+            EventDispatcher.Subscription subscription = subscriptions.remove(idVal.checkint());
+            if (subscription == null) {
+                return LuaValue.FALSE;
+            }
+            return LuaValue.valueOf(subscription.cancel());
         }
-        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,254 @@
+package me.touchie771.minecraftLuaScripting.eventHandlers;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import me.touchie771.minecraftLuaScripting.MinecraftLuaScripting;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.vehicle.VehicleEvent;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Lets a subscription receive fewer events than fire, deciding in Java before any Lua runs:
+ * {@code sample = n} delivers every n-th event, {@code throttle = n} at most one event per key every n ticks,
+ * and {@code coalesce = true} keeps only the latest event per key and delivers it at the end of the tick.
+ * The key is the player, the entity or nothing ({@code key = "player" | "entity" | "global"}), by default the
+ * player for player events and the entity for entity and vehicle events.
+ * Asynchronous events are always delivered right away. Only used on the server thread otherwise.
+ */
+abstract class EventMode {
+
+    private static final Listener FLUSHER = new Listener() {
+    };
+    private static final Set<Coalesce> DIRTY = new LinkedHashSet<>();
+    private static boolean flusherRegistered;
+
+    /**
+     * @return true to deliver the event to Lua now
+     */
+    abstract boolean admit(Event event);
+
+    /**
+     * Called once the subscription is registered.
+     */
+    void attach(MinecraftLuaScripting plugin, EventDispatcher.Subscription subscription) {
+    }
+
+    /**
+     * Called when the subscription is removed.
+     */
+    void cancel() {
+    }
+
+    /**
+     * Reads {@code sample}, {@code throttle}, {@code coalesce} and {@code key} from the options of {@code on()}.
+     *
+     * @return The mode, or null if events are delivered as they fire
+     */
+    static EventMode compile(Class<? extends Event> eventClass, LuaValue options) {
+        LuaValue sample = options.get("sample");
+        LuaValue throttle = options.get("throttle");
+        boolean coalesce = options.get("coalesce").toboolean();
+        int modes = (sample.isnil() ? 0 : 1) + (throttle.isnil() ? 0 : 1) + (coalesce ? 1 : 0);
+        if (modes == 0) {
+            if (!options.get("key").isnil()) {
+                LuaValue.error("on(event, fn, options): key needs throttle or coalesce");
+            }
+            return null;
+        }
+        if (modes > 1) {
+            LuaValue.error("on(event, fn, options): use only one of sample, throttle and coalesce");
+        }
+
+        if (!sample.isnil()) {
+            int every = sample.checkint();
+            if (every < 1) {
+                LuaValue.error("on(event, fn, options): sample must be at least 1");
+            }
+            return new Sample(every);
+        }
+        Function<Event, Object> key = key(eventClass, options.get("key").optjstring(null));
+        if (!throttle.isnil()) {
+            int ticks = throttle.checkint();
+            if (ticks < 1) {
+                LuaValue.error("on(event, fn, options): throttle must be at least 1 tick");
+            }
+            return new Throttle(ticks, key);
+        }
+        return new Coalesce(key);
+    }
+
+    private static Function<Event, Object> key(Class<? extends Event> eventClass, String name) {
+        if (name == null) {
+            name = PlayerEvent.class.isAssignableFrom(eventClass) ? "player"
+                    : EntityEvent.class.isAssignableFrom(eventClass) || VehicleEvent.class.isAssignableFrom(eventClass) ? "entity"
+                    : "global";
+        }
+        switch (name) {
+            case "global" -> {
+                Object global = new Object();
+                return event -> global;
+            }
+            case "player" -> {
+                if (PlayerEvent.class.isAssignableFrom(eventClass)) {
+                    return event -> ((PlayerEvent) event).getPlayer().getUniqueId();
+                }
+            }
+            case "entity" -> {
+                if (PlayerEvent.class.isAssignableFrom(eventClass)) {
+                    return event -> ((PlayerEvent) event).getPlayer().getUniqueId();
+                }
+                if (EntityEvent.class.isAssignableFrom(eventClass)) {
+                    return event -> ((EntityEvent) event).getEntity().getUniqueId();
+                }
+                if (VehicleEvent.class.isAssignableFrom(eventClass)) {
+                    return event -> ((VehicleEvent) event).getVehicle().getUniqueId();
+                }
+            }
+            default -> throw new LuaError("on(event, fn, options): key must be player, entity or global");
+        }
+        throw new LuaError("on(event, fn, options): key '" + name + "' does not apply to " + eventClass.getSimpleName());
+    }
+
+    /**
+     * Drops every pending coalesced event and the tick-end listener.
+     */
+    static void unregisterAll() {
+        for (Coalesce coalesce : DIRTY) {
+            coalesce.pending.clear();
+        }
+        DIRTY.clear();
+        HandlerList.unregisterAll(FLUSHER);
+        flusherRegistered = false;
+    }
+
+    private static void flushAll() {
+        if (DIRTY.isEmpty()) {
+            return;
+        }
+        List<Coalesce> dirty = new ArrayList<>(DIRTY);
+        DIRTY.clear();
+        for (Coalesce coalesce : dirty) {
+            coalesce.flush();
+        }
+    }
+
+    private static final class Sample extends EventMode {
+        private final int every;
+        private int count;
+
+        Sample(int every) {
+            this.every = every;
+        }
+
+        @Override
+        boolean admit(Event event) {
+            // Like the other modes, and the counter is only touched on the server thread.
+            if (event.isAsynchronous()) {
+                return true;
+            }
+            if (++count < every) {
+                return false;
+            }
+            count = 0;
+            return true;
+        }
+    }
+
+    private static final class Throttle extends EventMode {
+        private final int ticks;
+        private final Function<Event, Object> key;
+        private final Map<Object, Integer> lastDelivered = new HashMap<>();
+        private int pruneAt = 256;
+
+        Throttle(int ticks, Function<Event, Object> key) {
+            this.ticks = ticks;
+            this.key = key;
+        }
+
+        @Override
+        boolean admit(Event event) {
+            if (event.isAsynchronous()) {
+                return true;
+            }
+            int now = Bukkit.getCurrentTick();
+            Object current = key.apply(event);
+            Integer last = lastDelivered.get(current);
+            if (last != null && now - last < ticks) {
+                return false;
+            }
+            if (lastDelivered.size() >= pruneAt) {
+                // Forget keys that are past their window, e.g. players who left.
+                lastDelivered.values().removeIf(tick -> now - tick >= ticks);
+                pruneAt = Math.max(256, lastDelivered.size() * 2);
+            }
+            lastDelivered.put(current, now);
+            return true;
+        }
+    }
+
+    private static final class Coalesce extends EventMode {
+        private final Function<Event, Object> key;
+        private final Map<Object, Event> pending = new LinkedHashMap<>();
+        private EventDispatcher.Subscription subscription;
+
+        Coalesce(Function<Event, Object> key) {
+            this.key = key;
+        }
+
+        @Override
+        void attach(MinecraftLuaScripting plugin, EventDispatcher.Subscription subscription) {
+            this.subscription = subscription;
+            if (!flusherRegistered) {
+                Bukkit.getPluginManager().registerEvent(ServerTickEndEvent.class, FLUSHER, EventPriority.MONITOR,
+                        (listener, event) -> flushAll(), plugin);
+                flusherRegistered = true;
+            }
+        }
+
+        @Override
+        boolean admit(Event event) {
+            if (event.isAsynchronous()) {
+                return true;
+            }
+            if (pending.isEmpty()) {
+                DIRTY.add(this);
+            }
+            pending.put(key.apply(event), event);
+            return false;
+        }
+
+        @Override
+        void cancel() {
+            pending.clear();
+            DIRTY.remove(this);
+        }
+
+        private void flush() {
+            List<Event> events = new ArrayList<>(pending.values());
+            pending.clear();
+            for (Event event : events) {
+                // Another plugin may have cancelled it after we took it.
+                if (subscription.ignoreCancelled() && event instanceof Cancellable cancellable && cancellable.isCancelled()) {
+                    continue;
+                }
+                subscription.dispatcher().deliver(subscription, event);
+            }
+        }
+    }
+}
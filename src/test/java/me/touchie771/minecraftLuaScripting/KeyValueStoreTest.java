@@ -0,0 +1,132 @@
+package me.touchie771.minecraftLuaScripting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyValueStoreTest {
+
+    private static final Logger LOGGER = Logger.getLogger("KeyValueStoreTest");
+    private static final KeyValueStore.Settings NO_COMPACTION = new KeyValueStore.Settings(0L, false, Long.MAX_VALUE);
+
+    @TempDir
+    Path folder;
+
+    private Path log() {
+        return folder.resolve("store.log");
+    }
+
+    private void write(KeyValueStore.Settings settings, String key, String value) throws IOException {
+        KeyValueStore store = KeyValueStore.open(folder, LOGGER, settings);
+        store.set("script", key, value);
+        store.close();
+    }
+
+    @Test
+    void valuesSurviveReopening() throws IOException {
+        write(NO_COMPACTION, "a", "1");
+        write(NO_COMPACTION, "b", "2");
+
+        KeyValueStore store = KeyValueStore.open(folder, LOGGER, NO_COMPACTION);
+        assertEquals("1", store.get("script", "a"));
+        assertEquals("2", store.get("script", "b"));
+        store.close();
+    }
+
+    @Test
+    void tornTailIsDropped() throws IOException {
+        write(NO_COMPACTION, "a", "1");
+        long size = Files.size(log());
+        // A frame header promising more bytes than were written, as left by a crash mid-append.
+        Files.write(log(), new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+
+        KeyValueStore store = KeyValueStore.open(folder, LOGGER, NO_COMPACTION);
+        assertEquals("1", store.get("script", "a"));
+        store.close();
+        assertEquals(size, Files.size(log()));
+        assertFalse(Files.exists(folder.resolve("store.log.corrupt")));
+    }
+
+    @Test
+    void zeroFilledTailIsDropped() throws IOException {
+        write(NO_COMPACTION, "a", "1");
+        long size = Files.size(log());
+        Files.write(log(), new byte[64], StandardOpenOption.APPEND);
+
+        KeyValueStore store = KeyValueStore.open(folder, LOGGER, NO_COMPACTION);
+        assertEquals("1", store.get("script", "a"));
+        store.close();
+        assertEquals(size, Files.size(log()));
+        assertFalse(Files.exists(folder.resolve("store.log.corrupt")));
+    }
+
+    @Test
+    void corruptRecordKeepsTheRestOfTheLog() throws IOException {
+        write(NO_COMPACTION, "a", "1");
+        long firstRecordEnd = Files.size(log());
+        write(NO_COMPACTION, "b", "2");
+        write(NO_COMPACTION, "c", "3");
+        long total = Files.size(log());
+
+        // Flip the first byte of the second record's body so its checksum no longer matches.
+        byte[] bytes = Files.readAllBytes(log());
+        bytes[(int) firstRecordEnd + 8] ^= 0x7F;
+        Files.write(log(), bytes);
+
+        KeyValueStore store = KeyValueStore.open(folder, LOGGER, NO_COMPACTION);
+        assertEquals("1", store.get("script", "a"));
+        assertNull(store.get("script", "b"));
+        assertNull(store.get("script", "c"));
+        store.close();
+
+        Path corrupt = folder.resolve("store.log.corrupt");
+        assertTrue(Files.exists(corrupt));
+        assertEquals(total - firstRecordEnd, Files.size(corrupt));
+        assertEquals(firstRecordEnd, Files.size(log()));
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveValues() throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            write(NO_COMPACTION, "a", String.valueOf(i));
+        }
+        write(NO_COMPACTION, "gone", "x");
+        KeyValueStore store = KeyValueStore.open(folder, LOGGER, NO_COMPACTION);
+        store.delete("script", "gone");
+        store.close();
+        long before = Files.size(log());
+
+        // Seven records for one live key: the next batch triggers a compaction.
+        store = KeyValueStore.open(folder, LOGGER, new KeyValueStore.Settings(0L, false, 0L));
+        store.set("script", "b", "2");
+        store.close();
+        assertEquals(1, store.getCompactions());
+        assertTrue(Files.size(log()) < before);
+
+        store = KeyValueStore.open(folder, LOGGER, NO_COMPACTION);
+        assertEquals("5", store.get("script", "a"));
+        assertEquals("2", store.get("script", "b"));
+        assertNull(store.get("script", "gone"));
+        assertEquals(2, store.getKeyCount());
+        assertEquals(store.getLogBytes(), Files.size(log()));
+        store.close();
+    }
+
+    @Test
+    void writesAfterCloseAreRejected() throws IOException {
+        KeyValueStore store = KeyValueStore.open(folder, LOGGER, NO_COMPACTION);
+        store.close();
+        assertThrows(IllegalStateException.class, () -> store.set("script", "a", "1"));
+    }
+}
@@ -0,0 +1,50 @@
+package me.touchie771.minecraftLuaScripting.bindings;
+
+import org.bukkit.Bukkit;
+import org.bukkit.GameMode;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StaticBindingTest {
+
+    private static Globals globals() {
+        Globals globals = JsePlatform.standardGlobals();
+        globals.set("Bukkit", StaticBinding.of(Bukkit.class));
+        globals.set("Material", StaticBinding.of(Material.class));
+        globals.set("EntityType", StaticBinding.of(EntityType.class));
+        globals.set("GameMode", StaticBinding.of(GameMode.class));
+        return globals;
+    }
+
+    @Test
+    void getmetatableReturnsTheGuard() {
+        Globals globals = globals();
+        for (String name : new String[]{"Bukkit", "Material", "EntityType", "GameMode"}) {
+            LuaValue metatable = globals.load("return getmetatable(" + name + ")").call();
+            assertEquals(TypeBinding.METATABLE_GUARD, metatable, name);
+        }
+    }
+
+    @Test
+    void metatableCannotBeReplaced() {
+        Globals globals = globals();
+        assertThrows(LuaError.class, () -> globals.load("setmetatable(Material, {})").call());
+        assertThrows(LuaError.class, () -> globals.load("getmetatable(Material).__index = print").call());
+    }
+
+    @Test
+    void lookupsStillWork() {
+        Globals globals = globals();
+        assertEquals(Material.STONE, globals.load("return Material.STONE").call().touserdata());
+        assertEquals(Material.STONE, globals.load("return Material.valueOf('STONE')").call().touserdata());
+        assertEquals(Material.STONE, globals.load("return Material:valueOf('STONE')").call().touserdata());
+    }
+}